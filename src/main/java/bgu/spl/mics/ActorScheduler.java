@@ -0,0 +1,149 @@
+package bgu.spl.mics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs micro-services as actors on a shared work-stealing {@link ForkJoinPool}
+ * instead of giving each one a thread blocked in
+ * {@link MessageBus#awaitMessage(MicroService)}.
+ * <p>
+ * A {@link MicroService} passed to {@link #execute(Runnable)} is registered and
+ * initialized on the pool; from then on it is scheduled only when its mailbox
+ * becomes non-empty, handles at most {@code batchSize} messages, and yields the
+ * thread back to the pool. A service never runs on two threads at once.
+ * Other tasks are simply run on the pool.
+ * <p>
+ * Actors must use the {@link MessageBusImpl}, whose sends wake them up, and their
+ * callbacks must not block. That includes sends: with the
+ * {@link BackpressurePolicy#BLOCK} policy, a send to a full mailbox from an actor
+ * callback waits on the pool worker until the receiver frees a slot, stalling
+ * the worker and, if the receiver is an actor waiting for that worker, the pool.
+ * A callback that throws is reported by the pool and the actor keeps running;
+ * an actor whose initialization throws is unregistered. The executor terminates
+ * once it is shut down and every service it started has terminated.
+ */
+public class ActorScheduler extends AbstractExecutorService {
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final AtomicInteger active;
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a scheduler with one worker per available core.
+     *
+     * @param batchSize The maximal number of messages an actor handles before yielding.
+     */
+    public ActorScheduler(int batchSize) {
+        this(Runtime.getRuntime().availableProcessors(), batchSize);
+    }
+
+    /**
+     * @param parallelism The number of pool workers.
+     * @param batchSize   The maximal number of messages an actor handles before yielding.
+     */
+    public ActorScheduler(int parallelism, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive.");
+        }
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.batchSize = batchSize;
+        this.active = new AtomicInteger(0);
+        this.shutdown = false;
+    }
+
+    /**
+     * @return The maximal number of messages an actor handles before yielding.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("The scheduler is shut down.");
+        }
+        active.incrementAndGet();
+        if (command instanceof MicroService) {
+            MicroService service = (MicroService) command;
+            pool.execute(() -> service.startActor(this));
+        } else {
+            pool.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    done();
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs a step of an actor on the pool.
+     */
+    void schedule(Runnable step) {
+        pool.execute(step);
+    }
+
+    /**
+     * Called once by each service or task started by {@link #execute(Runnable)} when it ends.
+     */
+    void done() {
+        if (active.decrementAndGet() == 0 && shutdown) {
+            terminate();
+        }
+    }
+
+    private synchronized void terminate() {
+        pool.shutdown();
+        notifyAll();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (active.get() == 0) {
+            terminate();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        pool.shutdownNow();
+        synchronized (this) {
+            notifyAll();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && (active.get() == 0 || pool.isTerminated());
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+}
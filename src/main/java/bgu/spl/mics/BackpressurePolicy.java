@@ -0,0 +1,28 @@
+package bgu.spl.mics;
+
+/**
+ * What a bounded {@link Mailbox} does with a new message once it is full.
+ */
+public enum BackpressurePolicy {
+
+    /**
+     * The sender waits until the receiver frees a slot. An actor sending from
+     * a callback holds its {@link ActorScheduler} worker while it waits.
+     */
+    BLOCK,
+
+    /**
+     * The oldest queued message is discarded to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new message is discarded.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The new message is refused and handed to the message-bus dead-letter sink.
+     */
+    REJECT
+}
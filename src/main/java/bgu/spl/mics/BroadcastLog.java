@@ -0,0 +1,183 @@
+package bgu.spl.mics;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A shared, segmented, append-only log of broadcasts. A broadcast is appended
+ * once, whatever the number of its subscribers, and every subscriber reads the
+ * log through a {@link Cursor} of its own. Each entry holds the subscribers the
+ * broadcast was sent to, so a reader takes exactly the entries it was counted for.
+ * <p>
+ * The log keeps a reference only to its last segment. Older segments are
+ * referenced by the cursors still reading them, so a segment every cursor has
+ * passed is reclaimed by the garbage collector.
+ */
+final class BroadcastLog {
+
+    static final int SEGMENT_SIZE = 1024;
+
+    private static final class Segment {
+        private final long base;
+        private final AtomicReferenceArray<Message> entries = new AtomicReferenceArray<>(SEGMENT_SIZE);
+        // Written before the entry of the same index, so read after it.
+        private final AtomicReferenceArray<Map<MicroService, MessageFilter>> subscribers =
+            new AtomicReferenceArray<>(SEGMENT_SIZE);
+        private volatile Segment next;
+
+        private Segment(long base) {
+            this.base = base;
+        }
+    }
+
+    /**
+     * A reader blocked until an entry it wants is appended.
+     */
+    interface Reader {
+
+        /**
+         * @param subscribers The subscribers of the entry just appended.
+         * @return Whether the entry may let this reader proceed.
+         */
+        boolean wants(Map<MicroService, MessageFilter> subscribers);
+
+        /**
+         * Called once the reader is no longer registered.
+         */
+        void wakeUp();
+    }
+
+    /**
+     * A reading position in the log, used by a single thread at a time.
+     */
+    final class Cursor {
+        private Segment segment;
+        private long position;
+
+        private Cursor(Segment segment, long position) {
+            this.segment = segment;
+            this.position = position;
+        }
+
+        /**
+         * @return The position of the next entry to read.
+         */
+        long position() {
+            return position;
+        }
+
+        /**
+         * @return The entry at {@link #position()}, or null if it was not appended yet.
+         */
+        Message peek() {
+            if (position >= tail.get()) {
+                return null;
+            }
+            while (position >= segment.base + SEGMENT_SIZE) {
+                Segment next = segment.next;
+                if (next == null) {
+                    return null;
+                }
+                segment = next;
+            }
+            return segment.entries.get((int) (position - segment.base));
+        }
+
+        /**
+         * @return The subscribers of the entry returned by {@link #peek()}, with their filters.
+         */
+        Map<MicroService, MessageFilter> subscribers() {
+            return segment.subscribers.get((int) (position - segment.base));
+        }
+
+        /**
+         * Moves past the entry returned by {@link #peek()}.
+         */
+        void advance() {
+            position++;
+        }
+
+        /**
+         * @return The number of entries appended but not read yet.
+         */
+        long lag() {
+            return Math.max(tail.get() - position, 0);
+        }
+    }
+
+    private final AtomicLong tail = new AtomicLong(0);
+    private final AtomicReference<Segment> tailSegment = new AtomicReference<>(new Segment(0));
+    private final ConcurrentLinkedQueue<Reader> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @return A cursor positioned after every entry appended so far.
+     */
+    Cursor newCursor() {
+        // Read the segment first: it can only start at or before the tail read next.
+        Segment segment = tailSegment.get();
+        return new Cursor(segment, tail.get());
+    }
+
+    /**
+     * @return The number of entries claimed so far; the next entry gets this position.
+     */
+    long tailPosition() {
+        return tail.get();
+    }
+
+    /**
+     * Appends {@code message}, sent to {@code subscribers}, and wakes the readers
+     * waiting for it.
+     */
+    void append(Message message, Map<MicroService, MessageFilter> subscribers) {
+        Segment segment = tailSegment.get();
+        long position = tail.getAndIncrement();
+        while (position >= segment.base + SEGMENT_SIZE) {
+            Segment next = segment.next;
+            if (next == null) {
+                Segment created = new Segment(segment.base + SEGMENT_SIZE);
+                synchronized (segment) {
+                    if (segment.next == null) {
+                        segment.next = created;
+                    }
+                }
+                next = segment.next;
+            }
+            segment = next;
+        }
+        Segment current;
+        while ((current = tailSegment.get()).base < segment.base && !tailSegment.compareAndSet(current, segment)) {
+            // Another append moved the tail segment; retry unless it is already further.
+        }
+        segment.subscribers.set((int) (position - segment.base), subscribers);
+        segment.entries.set((int) (position - segment.base), message);
+        for (Iterator<Reader> it = waiters.iterator(); it.hasNext(); ) {
+            Reader reader = it.next();
+            if (reader.wants(subscribers)) {
+                it.remove();
+                reader.wakeUp();
+            }
+        }
+    }
+
+    /**
+     * Registers {@code reader} until an entry it wants is appended. A reader
+     * registers once per blocking wait, before its last check for new entries.
+     */
+    void awaitAppend(Reader reader) {
+        waiters.add(reader);
+    }
+
+    /**
+     * Unregisters {@code reader}, which will not read the log any more.
+     */
+    void cancelAwait(Reader reader) {
+        while (waiters.remove(reader)) {
+            // A reader may be registered twice if two appends woke it at once.
+        }
+    }
+}
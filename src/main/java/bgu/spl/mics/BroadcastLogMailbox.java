@@ -0,0 +1,224 @@
+package bgu.spl.mics;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The mailbox of a micro-service when broadcasts travel through a shared
+ * {@link BroadcastLog}: events are queued here, broadcasts are read from the log
+ * through a cursor of this mailbox, skipping the broadcasts that were not sent
+ * to the service and those its subscription filters reject. The cursor starts
+ * when the service first subscribes to a broadcast, see {@link #startReading()}.
+ * <p>
+ * Each queued event is stamped with the log position at the time it was
+ * offered. A log entry is taken before an event only if it was appended before
+ * that event was offered, so messages keep the order in which they were sent
+ * by each sender, as with a single queue.
+ * <p>
+ * The event queue is unbounded; priority lanes and coalescing are not supported.
+ */
+final class BroadcastLogMailbox implements Mailbox {
+
+    private static final class StampedEvent {
+        private final Message event;
+        private final long logPosition;
+
+        private StampedEvent(Message event, long logPosition) {
+            this.event = event;
+            this.logPosition = logPosition;
+        }
+    }
+
+    private final BroadcastLog log;
+    private final MicroService owner;
+    private final Runnable rejectionListener;
+    private final ArrayDeque<StampedEvent> events;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final BroadcastLog.Reader reader;
+    // Guarded by lock; null until the owner subscribes to a broadcast.
+    private BroadcastLog.Cursor cursor;
+    // Guarded by lock; whether the reader is registered with the log.
+    private boolean awaitingAppend;
+    // Read by appending threads: a queued event may wait for any entry.
+    private volatile boolean hasEvents;
+    private volatile int highWaterMark;
+
+    /**
+     * @param log   The log broadcasts are read from.
+     * @param owner The micro-service this mailbox belongs to.
+     * @param rejectionListener Run for each broadcast sent to the owner that its filter rejects.
+     */
+    BroadcastLogMailbox(BroadcastLog log, MicroService owner, Runnable rejectionListener) {
+        this.log = log;
+        this.owner = owner;
+        this.rejectionListener = rejectionListener;
+        this.events = new ArrayDeque<>();
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.reader = new BroadcastLog.Reader() {
+            @Override
+            public boolean wants(Map<MicroService, MessageFilter> subscribers) {
+                return hasEvents || subscribers.containsKey(owner);
+            }
+
+            @Override
+            public void wakeUp() {
+                lock.lock();
+                try {
+                    awaitingAppend = false;
+                    notEmpty.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+        this.highWaterMark = 0;
+    }
+
+    /**
+     * Starts reading the log from its current end, unless already reading. The
+     * bus calls it before the owner is added to the subscribers of a broadcast,
+     * so no entry sent to the owner is appended before the cursor.
+     */
+    void startReading() {
+        lock.lock();
+        try {
+            if (cursor == null) {
+                cursor = log.newCursor();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops reading the log, once the owner unregistered.
+     */
+    void stopReading() {
+        log.cancelAwait(reader);
+    }
+
+    /**
+     * @return The log broadcasts are read from.
+     */
+    BroadcastLog getLog() {
+        return log;
+    }
+
+    @Override
+    public Message offer(Message message) {
+        lock.lock();
+        try {
+            events.add(new StampedEvent(message, log.tailPosition()));
+            hasEvents = true;
+            notEmpty.signal();
+            if (events.size() > highWaterMark) {
+                highWaterMark = events.size();
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held.
+    private Message next() {
+        Message broadcast = null;
+        if (cursor != null) {
+            while ((broadcast = cursor.peek()) != null && !accepts(broadcast)) {
+                cursor.advance();
+            }
+        }
+        StampedEvent event = events.peek();
+        if (broadcast != null && (event == null || cursor.position() < event.logPosition)) {
+            cursor.advance();
+            return broadcast;
+        }
+        if (event != null && (broadcast != null || cursor == null || cursor.position() >= event.logPosition)) {
+            events.poll();
+            hasEvents = !events.isEmpty();
+            return event.event;
+        }
+        // An entry the event must follow was claimed but is not written yet.
+        return null;
+    }
+
+    // Called with the lock held, for the entry under the cursor.
+    private boolean accepts(Message broadcast) {
+        MessageFilter filter = cursor.subscribers().get(owner);
+        if (filter == null) {
+            return false;
+        }
+        if (!filter.accepts(broadcast)) {
+            rejectionListener.run();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Message take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Message message;
+            while ((message = next()) == null) {
+                if (!awaitingAppend) {
+                    awaitingAppend = true;
+                    log.awaitAppend(reader);
+                    // Check again: an append may have completed before the registration.
+                    message = next();
+                    if (message != null) {
+                        return message;
+                    }
+                }
+                notEmpty.await();
+            }
+            return message;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Message poll() {
+        lock.lock();
+        try {
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The queued events plus the log entries not read yet, including
+     *         those of types the owner did not subscribe to.
+     */
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            long lag = cursor == null ? 0 : cursor.lag();
+            return (int) Math.min(events.size() + lag, Integer.MAX_VALUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return 0;
+    }
+
+    @Override
+    public BackpressurePolicy getPolicy() {
+        return BackpressurePolicy.BLOCK;
+    }
+
+    @Override
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+}
@@ -0,0 +1,18 @@
+package bgu.spl.mics;
+
+/**
+ * A message whose pending copies may be merged into one. When a mailbox that
+ * coalesces already holds a message of the same class, the queued one is
+ * replaced by {@code queued.coalesce(newer)}, placed where {@code newer} would
+ * have been queued.
+ *
+ * @param <M> The concrete message type.
+ */
+public interface CoalescingMessage<M extends CoalescingMessage<M>> extends Message {
+
+    /**
+     * @param newer A message of the same class sent after this one.
+     * @return A single message standing for this one followed by {@code newer}.
+     */
+    M coalesce(M newer);
+}
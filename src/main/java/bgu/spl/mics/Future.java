@@ -1,19 +1,33 @@
 package bgu.spl.mics;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 /**
  * A Future object represents a promised result - an object that will
  * eventually be resolved to hold a result of some operation. The class allows
- * Retrieving the result once it is available.
+ * Retrieving the result once it is available, either by blocking in
+ * {@link #get()} or by registering a continuation with {@link #onComplete(Callback)}.
  *
- * Only private methods may be added to this class.
  * No public constructor is allowed except for the empty constructor.
+ * <p>
+ * Waiters block on a {@link ReentrantLock} condition rather than a monitor, so
+ * a virtual thread waiting for a result does not pin its carrier thread.
  */
 public class Future<T> {
 
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition resolved = lock.newCondition();
     private T result;
     private boolean isDone;
+    private List<Callback<T>> continuations;
 
     /**
      * This should be the only public constructor in this class.
@@ -21,6 +35,7 @@ public class Future<T> {
     public Future() {
         this.result = null;
         this.isDone = false;
+        this.continuations = null;
     }
 
     /**
@@ -31,36 +46,73 @@ public class Future<T> {
      * @return return the result of type T if it is available, if not wait until it is available.
      *
      */
-    public synchronized T get() {
-        while (!isDone) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return null; // Optionally handle interrupt differently
+    public T get() {
+        lock.lock();
+        try {
+            while (!isDone) {
+                try {
+                    resolved.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null; // Optionally handle interrupt differently
+                }
             }
+            return result;
+        } finally {
+            lock.unlock();
         }
-        return result;
     }
 
     /**
-     * Resolves the result of this Future object.
+     * Resolves the result of this Future object and runs the registered
+     * continuations, in registration order, on the calling thread. A
+     * continuation that throws is reported and does not keep the others from
+     * running, nor reaches the caller.
+     * Resolving an already resolved Future has no effect.
      *
      * @param result the result to set for this Future object.
      */
-    public synchronized void resolve(T result) {
-        if (!isDone) {
+    public void resolve(T result) {
+        List<Callback<T>> toRun;
+        lock.lock();
+        try {
+            if (isDone) {
+                return;
+            }
             this.result = result;
             this.isDone = true;
-            notifyAll();
+            toRun = continuations;
+            continuations = null;
+            resolved.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (toRun != null) {
+            for (Callback<T> continuation : toRun) {
+                runContinuation(continuation, result);
+            }
+        }
+    }
+
+    private static <T> void runContinuation(Callback<T> continuation, T result) {
+        try {
+            continuation.call(result);
+        } catch (RuntimeException e) {
+            System.err.println("Future continuation failed: " + e);
+            e.printStackTrace();
         }
     }
 
     /**
      * @return true if this object has been resolved, false otherwise.
      */
-    public synchronized boolean isDone() {
-        return isDone;
+    public boolean isDone() {
+        lock.lock();
+        try {
+            return isDone;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -74,15 +126,141 @@ public class Future<T> {
      * 	       wait for {@code timeout} TimeUnits {@code unit}. If time has
      *         elapsed, return null.
      */
-    public synchronized T get(long timeout, TimeUnit unit) {
-        if (!isDone) {
+    public T get(long timeout, TimeUnit unit) {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!isDone) {
+                if (remaining <= 0) {
+                    return null;
+                }
+                try {
+                    remaining = resolved.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null; // Optionally handle interrupt differently
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers {@code continuation} to be called with the result once this
+     * Future is resolved. The continuation runs on the thread that resolves the
+     * Future, or immediately on the calling thread if it is already resolved.
+     * <p>
+     * @param continuation the callback to call with the result.
+     */
+    public void onComplete(Callback<T> continuation) {
+        lock.lock();
+        try {
+            if (!isDone) {
+                if (continuations == null) {
+                    continuations = new ArrayList<>(1);
+                }
+                continuations.add(continuation);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        runContinuation(continuation, result);
+    }
+
+    /**
+     * @param fn the transformation to apply to the result.
+     * @return a Future resolved with {@code fn} applied to the result of this one,
+     *         or with null if {@code fn} throws.
+     */
+    public <R> Future<R> thenApply(Function<? super T, ? extends R> fn) {
+        Future<R> next = new Future<>();
+        onComplete(value -> {
+            R mapped = null;
+            try {
+                mapped = fn.apply(value);
+            } finally {
+                // Resolved even if fn throws, which runContinuation then reports.
+                next.resolve(mapped);
+            }
+        });
+        return next;
+    }
+
+    /**
+     * @param fn a function starting another asynchronous computation (for example,
+     *           sending an event) from the result of this one.
+     * @return a Future resolved with the result of the Future returned by {@code fn},
+     *         or with null if {@code fn} returned null or threw.
+     */
+    public <R> Future<R> thenCompose(Function<? super T, Future<R>> fn) {
+        Future<R> next = new Future<>();
+        onComplete(value -> {
+            Future<R> inner = null;
             try {
-                wait(unit.toMillis(timeout));
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return null; // Optionally handle interrupt differently
+                inner = fn.apply(value);
+            } finally {
+                if (inner == null) {
+                    next.resolve(null);
+                } else {
+                    inner.onComplete(next::resolve);
+                }
+            }
+        });
+        return next;
+    }
+
+    /**
+     * @param futures the futures to combine; null entries count as resolved with null.
+     * @return a Future resolved, once all of {@code futures} are resolved, with
+     *         their results in the same order.
+     */
+    public static <T> Future<List<T>> allOf(List<Future<T>> futures) {
+        Future<List<T>> all = new Future<>();
+        if (futures.isEmpty()) {
+            all.resolve(Collections.emptyList());
+            return all;
+        }
+        @SuppressWarnings("unchecked")
+        T[] results = (T[]) new Object[futures.size()];
+        AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            final int index = i;
+            Callback<T> collect = value -> {
+                results[index] = value;
+                if (remaining.decrementAndGet() == 0) {
+                    all.resolve(Collections.unmodifiableList(Arrays.asList(results)));
+                }
+            };
+            Future<T> future = futures.get(i);
+            if (future == null) {
+                collect.call(null);
+            } else {
+                future.onComplete(collect);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * @param futures the futures to combine; null entries are ignored.
+     * @return a Future resolved with the result of whichever of {@code futures}
+     *         is resolved first; resolved with null if there is none but null entries.
+     */
+    public static <T> Future<T> anyOf(List<Future<T>> futures) {
+        Future<T> any = new Future<>();
+        boolean none = true;
+        for (Future<T> future : futures) {
+            if (future != null) {
+                none = false;
+                future.onComplete(any::resolve);
             }
         }
-        return result;
+        if (none) {
+            any.resolve(null);
+        }
+        return any;
     }
 }
@@ -0,0 +1,207 @@
+package bgu.spl.mics;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counts the messages sent on a message-bus that are still queued or being
+ * handled, so that a sender can wait until all the work it caused is done.
+ * <p>
+ * Every registered micro-service holds a {@link Share} of the count. A message
+ * is added to the share of its receiver before it is queued, and taken off once
+ * the receiver handled it, or when it is discarded, rejected by a filter, or
+ * merged into a message already queued. When the receiver unregisters its share
+ * is closed: what it still holds, and whatever is queued for it afterwards,
+ * no longer counts.
+ * <p>
+ * A share also holds the work its micro-service declared pending outside its
+ * mailbox, such as data it will send at a later tick. The bus is quiescent once
+ * no message is in flight and no work is pending; the quiescence listener, if
+ * set, is then run once, and {@link #awaitZero()} waits for it to finish, so no
+ * new work is started while the listener ends the simulation.
+ * <p>
+ * {@link #awaitZero()} blocks on a {@link ReentrantLock} condition rather than
+ * a monitor, so a virtual thread waiting in it does not pin its carrier thread.
+ */
+final class InFlight {
+
+    /**
+     * The part of the count queued for, or being handled by, one micro-service.
+     * Guarded by the lock of the enclosing {@link InFlight}.
+     */
+    static final class Share {
+        private long count;
+        private long pending;
+        private boolean closed;
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long total;
+    private long pendingTotal;
+    private Runnable quiescenceListener;
+    private boolean listenerRunning;
+
+    void add(Share share, int messages) {
+        lock.lock();
+        try {
+            if (!share.closed) {
+                share.count += messages;
+                total += messages;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts a send in progress, so the count does not drop to 0 between two of
+     * the receivers it queues for.
+     */
+    void beginSend() {
+        lock.lock();
+        try {
+            total++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void endSend() {
+        Runnable listener;
+        lock.lock();
+        try {
+            total--;
+            if (total == 0) {
+                changed.signalAll();
+            }
+            listener = takeListenerIfQuiescent();
+        } finally {
+            lock.unlock();
+        }
+        runListener(listener);
+    }
+
+    void done(Share share, int messages) {
+        Runnable listener;
+        lock.lock();
+        try {
+            if (share.closed) {
+                return;
+            }
+            share.count -= messages;
+            total -= messages;
+            if (total == 0) {
+                changed.signalAll();
+            }
+            listener = takeListenerIfQuiescent();
+        } finally {
+            lock.unlock();
+        }
+        runListener(listener);
+    }
+
+    void close(Share share) {
+        Runnable listener;
+        lock.lock();
+        try {
+            share.closed = true;
+            total -= share.count;
+            pendingTotal -= share.pending;
+            share.count = 0;
+            share.pending = 0;
+            if (total == 0) {
+                changed.signalAll();
+            }
+            listener = takeListenerIfQuiescent();
+        } finally {
+            lock.unlock();
+        }
+        runListener(listener);
+    }
+
+    /**
+     * Sets the work pending in {@code share} outside the mailbox, in any unit.
+     */
+    void setPending(Share share, long units) {
+        Runnable listener;
+        lock.lock();
+        try {
+            if (share.closed) {
+                return;
+            }
+            pendingTotal += units - share.pending;
+            share.pending = units;
+            listener = takeListenerIfQuiescent();
+        } finally {
+            lock.unlock();
+        }
+        runListener(listener);
+    }
+
+    /**
+     * Sets the listener run once the bus is quiescent, at once if it already is.
+     * It runs a single time, on the thread that made the bus quiescent, after
+     * the lock is released.
+     */
+    void setQuiescenceListener(Runnable listener) {
+        Runnable quiescent;
+        lock.lock();
+        try {
+            quiescenceListener = listener;
+            quiescent = takeListenerIfQuiescent();
+        } finally {
+            lock.unlock();
+        }
+        runListener(quiescent);
+    }
+
+    long get() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Runnable takeListenerIfQuiescent() {
+        Runnable listener = quiescenceListener;
+        if (listener == null || total > 0 || pendingTotal > 0) {
+            return null;
+        }
+        quiescenceListener = null;
+        listenerRunning = true;
+        return listener;
+    }
+
+    private void runListener(Runnable listener) {
+        if (listener != null) {
+            try {
+                listener.run();
+            } finally {
+                lock.lock();
+                try {
+                    listenerRunning = false;
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until no message is queued or being handled.
+     */
+    void awaitZero() throws InterruptedException {
+        lock.lock();
+        try {
+            while (total > 0 || listenerRunning) {
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package bgu.spl.mics;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Routes events by consistent hashing of their {@link RoutingKey}: every
+ * subscriber owns {@value #VIRTUAL_NODES} points on a hash ring, built from its
+ * name, and a key goes to the owner of the first point at or after its hash.
+ * Events without a key are routed round-robin.
+ */
+final class KeyAffinityRouter implements Router {
+
+    static final int VIRTUAL_NODES = 64;
+
+    /**
+     * The ring of one subscriber array: {@code points} sorted, {@code owners[i]}
+     * the subscriber index owning {@code points[i]}.
+     */
+    private static final class Ring {
+        private final MicroService[] subscribers;
+        private final int[] points;
+        private final int[] owners;
+
+        private Ring(MicroService[] subscribers) {
+            this.subscribers = subscribers;
+            long[] entries = new long[subscribers.length * VIRTUAL_NODES];
+            for (int s = 0; s < subscribers.length; s++) {
+                for (int v = 0; v < VIRTUAL_NODES; v++) {
+                    int point = mix((subscribers[s].getName() + "#" + v).hashCode());
+                    // Sort by point, then by subscriber index.
+                    entries[s * VIRTUAL_NODES + v] = ((long) point << 32) | s;
+                }
+            }
+            Arrays.sort(entries);
+            points = new int[entries.length];
+            owners = new int[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                points[i] = (int) (entries[i] >> 32);
+                owners[i] = (int) entries[i];
+            }
+        }
+
+        private int owner(int hash) {
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return owners[index == points.length ? 0 : index];
+        }
+    }
+
+    private final RoundRobinRouter fallback = new RoundRobinRouter();
+    private volatile Ring ring;
+
+    @Override
+    public int route(Event<?> event, MicroService[] subscribers, ToIntFunction<MicroService> queueDepth) {
+        Object key = event instanceof RoutingKey ? ((RoutingKey) event).getRoutingKey() : null;
+        if (key == null) {
+            return fallback.route(event, subscribers, queueDepth);
+        }
+        Ring current = ring;
+        if (current == null || current.subscribers != subscribers) {
+            current = new Ring(subscribers);
+            ring = current;
+        }
+        return current.owner(mix(key.hashCode()));
+    }
+
+    // The MurmurHash3 finalizer, so that close hash codes land far apart on the ring.
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
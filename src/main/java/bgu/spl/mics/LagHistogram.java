@@ -0,0 +1,94 @@
+package bgu.spl.mics;
+
+/**
+ * A histogram of delays in nanoseconds with a bounded relative error: values
+ * below 16 ns have buckets of their own, larger values share a bucket with those
+ * having the same highest 5 bits, so a percentile is off by less than 1/16 of
+ * its value. Its size does not depend on the number of recorded values.
+ * <p>
+ * Thread-safe; records from one thread and reads from another are expected.
+ */
+public final class LagHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts;
+    private long count;
+    private long max;
+
+    public LagHistogram() {
+        this.counts = new long[64 * SUB_BUCKETS];
+    }
+
+    private LagHistogram(LagHistogram other) {
+        this.counts = other.counts.clone();
+        this.count = other.count;
+        this.max = other.max;
+    }
+
+    /**
+     * @param nanos The delay to record; negative delays count as 0.
+     */
+    public synchronized void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[indexOf(value)]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100.
+     * @return The largest value of the bucket holding the given percentile of the
+     *         recorded values, at most the largest recorded value; 0 if none was recorded.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int index = 0; index < counts.length; index++) {
+            seen += counts[index];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(index), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return A copy of this histogram, unaffected by later records.
+     */
+    public synchronized LagHistogram copy() {
+        return new LagHistogram(this);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
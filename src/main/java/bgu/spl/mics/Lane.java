@@ -0,0 +1,21 @@
+package bgu.spl.mics;
+
+/**
+ * The priority lanes of a {@link Mailbox}. When a mailbox has priority lanes
+ * enabled, {@link MessageBus#awaitMessage(MicroService)} always takes pending
+ * {@link #CONTROL} messages before {@link #DATA} messages, while each lane stays FIFO.
+ */
+public enum Lane {
+
+    /**
+     * Messages that change the life-cycle of a service, such as crash and
+     * shutdown notifications. The control lane is never bounded, so these
+     * messages are never dropped.
+     */
+    CONTROL,
+
+    /**
+     * Every other message.
+     */
+    DATA
+}
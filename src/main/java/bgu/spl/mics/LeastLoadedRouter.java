@@ -0,0 +1,32 @@
+package bgu.spl.mics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Routes each event to the subscriber with the fewest queued messages. The scan
+ * starts at a rotating position, so equally loaded subscribers share the work.
+ */
+final class LeastLoadedRouter implements Router {
+
+    private final AtomicInteger start = new AtomicInteger();
+
+    @Override
+    public int route(Event<?> event, MicroService[] subscribers, ToIntFunction<MicroService> queueDepth) {
+        int first = Math.floorMod(start.getAndIncrement(), subscribers.length);
+        int best = first;
+        int bestDepth = Integer.MAX_VALUE;
+        for (int i = 0; i < subscribers.length; i++) {
+            int index = (first + i) % subscribers.length;
+            int depth = queueDepth.applyAsInt(subscribers[index]);
+            if (depth < bestDepth) {
+                best = index;
+                bestDepth = depth;
+                if (depth == 0) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+}
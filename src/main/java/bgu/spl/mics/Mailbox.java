@@ -0,0 +1,90 @@
+package bgu.spl.mics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The message queue the {@link MessageBus} allocates for every registered
+ * {@link MicroService}. Any number of threads may add messages to a mailbox, but
+ * only the owning micro-service takes them out.
+ */
+public interface Mailbox {
+
+    /**
+     * Adds {@code message} to the mailbox, applying the mailbox's
+     * {@link BackpressurePolicy} if it is full.
+     * <p>
+     * @param message The message to add.
+     * @return The message that did not make it into the mailbox - either
+     *         {@code message} itself or an older message evicted to make room
+     *         for it - or null if nothing was discarded.
+     */
+    Message offer(Message message);
+
+    /**
+     * Adds {@code messages}, in order, to the mailbox, applying the mailbox's
+     * {@link BackpressurePolicy} to each of them if it is full. Implementations may
+     * add the whole list in a single operation when there is room for it.
+     * <p>
+     * @param messages The messages to add.
+     * @return The messages that did not make it into the mailbox, in the order
+     *         they were discarded; an empty list if nothing was discarded.
+     */
+    default List<Message> offerAll(List<? extends Message> messages) {
+        List<Message> discarded = null;
+        for (Message message : messages) {
+            Message refused = offer(message);
+            if (refused != null) {
+                if (discarded == null) {
+                    discarded = new ArrayList<>();
+                }
+                discarded.add(refused);
+            }
+        }
+        return discarded == null ? Collections.emptyList() : discarded;
+    }
+
+    /**
+     * Sets the action run each time an offered message is merged into a message
+     * already queued instead of being queued itself. Mailboxes that do not
+     * coalesce never run it.
+     */
+    default void setCoalescingListener(Runnable listener) {
+    }
+
+    /**
+     * Removes the next message, waiting until one is available.
+     * <p>
+     * @return The next message.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    Message take() throws InterruptedException;
+
+    /**
+     * Removes the next message without waiting.
+     * <p>
+     * @return The next message, or null if the mailbox is empty.
+     */
+    Message poll();
+
+    /**
+     * @return The number of messages currently waiting in the mailbox.
+     */
+    int size();
+
+    /**
+     * @return The maximal number of queued messages, or 0 if the mailbox is unbounded.
+     */
+    int getCapacity();
+
+    /**
+     * @return The policy applied when the mailbox is full.
+     */
+    BackpressurePolicy getPolicy();
+
+    /**
+     * @return The largest number of messages that were ever waiting in the mailbox at once.
+     */
+    int getHighWaterMark();
+}
@@ -0,0 +1,11 @@
+package bgu.spl.mics;
+
+/**
+ * Creates the {@link Mailbox} of a micro-service when it registers to the
+ * {@link MessageBus}.
+ */
+public interface MailboxFactory {
+
+    Mailbox create(MicroService m);
+
+}
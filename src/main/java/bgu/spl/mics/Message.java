@@ -6,7 +6,17 @@ package bgu.spl.mics;
  * that it is used only to mark other types of objects as messages. It does not
  * contain any methods but every class that you want to send as a message (using
  * the {@link MessageBus}) must implement it.
+ * <p>
+ * A message type may override {@link #getLane()} to declare that it belongs
+ * to the {@link Lane#CONTROL} lane.
  */
 public interface Message {
 
+    /**
+     * @return The mailbox lane of this message; {@link Lane#DATA} unless overridden.
+     */
+    default Lane getLane() {
+        return Lane.DATA;
+    }
+
 }
@@ -1,5 +1,8 @@
 package bgu.spl.mics;
 
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * The message-bus is a shared object used for communication between
  * micro-services.
@@ -20,6 +23,19 @@ public interface MessageBus {
      */
     <T> void subscribeEvent(Class<? extends Event<T>> type, MicroService m);
 
+    /**
+     * Subscribes {@code m} to receive the {@link Event}s of type {@code type} that
+     * {@code filter} accepts. The filter is checked before an event is routed, so
+     * an event goes to one of the micro-services whose filter accepts it.
+     * <p>
+     * @param <T>    The type of the result expected by the completed event.
+     * @param <E>    The type of event to subscribe to.
+     * @param type   The type to subscribe to.
+     * @param filter The predicate an event must satisfy, null to accept all of them.
+     * @param m      The subscribing micro-service.
+     */
+    <T, E extends Event<T>> void subscribeEvent(Class<? extends E> type, Predicate<? super E> filter, MicroService m);
+
     /**
      * Subscribes {@code m} to receive {@link Broadcast}s of type {@code type}.
      * <p>
@@ -28,6 +44,17 @@ public interface MessageBus {
      */
     void subscribeBroadcast(Class<? extends Broadcast> type, MicroService m);
 
+    /**
+     * Subscribes {@code m} to receive the {@link Broadcast}s of type {@code type}
+     * that {@code filter} accepts. The others are never added to its queue.
+     * <p>
+     * @param <B>    The type of broadcast message to subscribe to.
+     * @param type   The type to subscribe to.
+     * @param filter The predicate a broadcast must satisfy, null to accept all of them.
+     * @param m      The subscribing micro-service.
+     */
+    <B extends Broadcast> void subscribeBroadcast(Class<? extends B> type, Predicate<? super B> filter, MicroService m);
+
     /**
      * Notifies the MessageBus that the event {@code e} is completed and its
      * result was {@code result}.
@@ -56,10 +83,25 @@ public interface MessageBus {
      * @param <T>    	The type of the result expected by the event and its corresponding future object.
      * @param e     	The event to add to the queue.
      * @return {@link Future<T>} object to be resolved once the processing is complete,
-     * 	       null in case no micro-service has subscribed to {@code e.getClass()}.
+     * 	       null in case no micro-service has subscribed to {@code e.getClass()}
+     * 	       or {@code e} is a {@link OneWayEvent}.
      */
     <T> Future<T> sendEvent(Event<T> e);
 
+    /**
+     * Adds each of the {@link Event}s in {@code events} to the message queue of one of
+     * the micro-services subscribed to its type, exactly as if {@link #sendEvent(Event)}
+     * was called for each of them in order. Subscribers are selected once for each run
+     * of consecutive events of the same type, and each micro-service's share is added
+     * to its queue in a single operation. This method should be non-blocking.
+     * <p>
+     * @param <T>    	The type of the result expected by the events.
+     * @param events 	The events to add to the queues.
+     * @return A list holding, at the position of each event, the {@link Future<T>} that
+     *         {@link #sendEvent(Event)} would have returned for it.
+     */
+    <T> List<Future<T>> sendEvents(List<? extends Event<T>> events);
+
     /**
      * Allocates a message-queue for the {@link MicroService} {@code m}.
      * <p>
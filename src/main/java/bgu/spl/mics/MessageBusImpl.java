@@ -1,18 +1,28 @@
 package bgu.spl.mics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 
 /**
- * The {@link MessageBusImpl class is the implementation of the MessageBus interface.
- * Write your implementation here!
- * Only one public method (in addition to getters which can be public solely for unit testing) may be added to this class
- * All other methods and members you add the class must be private.
+ * The {@link MessageBusImpl} class is the implementation of the MessageBus interface.
+ * {@link #getInstance()} is the bus shared by default; a simulation may create a
+ * bus of its own with the public constructor.
+ * <p>
+ * Beyond the MessageBus methods, a bus is configured through public setters, such
+ * as its mailboxes, routing, broadcast log and in-flight tracking, which apply to
+ * the micro-services registered afterwards, and reports its statistics through
+ * public getters. Methods used only by {@link MicroService} are package-private.
  */
 
 public class MessageBusImpl implements MessageBus {
@@ -25,108 +35,952 @@ public class MessageBusImpl implements MessageBus {
 		return MessageBusHolder.instance;
 	}
 
-    private final ConcurrentHashMap<MicroService, BlockingQueue<Message>> queues;
-    private final ConcurrentHashMap<Class<? extends Message>, CopyOnWriteArrayList<MicroService>> subscriptionsEvents;
-    private final ConcurrentHashMap<Class<? extends Message>, CopyOnWriteArrayList<MicroService>> subscriptionsBroadcast;
+    /**
+     * The subscribers of a single event class, through any of its supertypes,
+     * together with the {@link Router} choosing among them. The subscribers are never mutated in place:
+     * subscribe/unregister publish a fresh {@link Members}, so
+     * {@link #next(Event, ToIntFunction)} can pick a receiver without taking a lock.
+     */
+    private static final class EventRoute {
 
-    private final ConcurrentHashMap<Class<? extends Event<?>>, Queue<MicroService>> roundRobinQueues;
-    private final ConcurrentHashMap<Event<?>, Future<?>> futures;
+        /**
+         * An immutable snapshot: {@code filters[i]} is the filter of {@code services[i]},
+         * and {@code filters} is null when no subscriber filters.
+         */
+        private static final class Members {
+            private final MicroService[] services;
+            private final MessageFilter[] filters;
 
-    private MessageBusImpl() {
-        queues = new ConcurrentHashMap<>();
-        subscriptionsEvents = new ConcurrentHashMap<>();
-        subscriptionsBroadcast = new ConcurrentHashMap<>();
-        roundRobinQueues = new ConcurrentHashMap<>();
-        futures = new ConcurrentHashMap<>();
+            private Members(MicroService[] services, MessageFilter[] filters) {
+                this.services = services;
+                this.filters = filters;
+            }
+        }
+
+        private static final Members EMPTY = new Members(new MicroService[0], null);
+
+        private final Class<?> type;
+        private volatile Members members = EMPTY;
+        private volatile Router router = new RoundRobinRouter();
+
+        private EventRoute(Class<?> type) {
+            this.type = type;
+        }
+
+        /**
+         * @return The receiver of {@code e} among the subscribers whose filter accepts
+         *         it, or null if there is none.
+         */
+        private MicroService next(Event<?> e, ToIntFunction<MicroService> queueDepth) {
+            Members snapshot = members;
+            MicroService[] services = snapshot.services;
+            if (snapshot.filters != null) {
+                services = accepting(snapshot, e);
+            }
+            if (services.length == 0) {
+                return null;
+            }
+            return services[router.route(e, services, queueDepth)];
+        }
+
+        /**
+         * @return The subscribers accepting {@code e}; the snapshot array itself
+         *         when all of them do, so routers may keep caching by identity.
+         */
+        private static MicroService[] accepting(Members snapshot, Event<?> e) {
+            MicroService[] services = snapshot.services;
+            List<MicroService> accepted = null;
+            for (int i = 0; i < services.length; i++) {
+                boolean accepts = snapshot.filters[i].accepts(e);
+                if (!accepts && accepted == null) {
+                    accepted = new ArrayList<>(services.length);
+                    accepted.addAll(Arrays.asList(services).subList(0, i));
+                } else if (accepts && accepted != null) {
+                    accepted.add(services[i]);
+                }
+            }
+            return accepted == null ? services : accepted.toArray(new MicroService[0]);
+        }
+
+        private synchronized void add(MicroService m, MessageFilter filter) {
+            MicroService[] services = members.services;
+            int index = services.length;
+            for (int i = 0; i < services.length; i++) {
+                if (services[i] == m) {
+                    index = i;
+                }
+            }
+            MicroService[] updated = Arrays.copyOf(services, Math.max(services.length, index + 1));
+            updated[index] = m;
+            MessageFilter[] filters = new MessageFilter[updated.length];
+            for (int i = 0; i < updated.length; i++) {
+                filters[i] = i == index ? filter : filterAt(i);
+            }
+            publish(updated, filters);
+        }
+
+        private synchronized void remove(MicroService m) {
+            MicroService[] services = members.services;
+            for (int i = 0; i < services.length; i++) {
+                if (services[i] == m) {
+                    MicroService[] updated = new MicroService[services.length - 1];
+                    MessageFilter[] filters = new MessageFilter[updated.length];
+                    for (int j = 0, k = 0; j < services.length; j++) {
+                        if (j != i) {
+                            updated[k] = services[j];
+                            filters[k++] = filterAt(j);
+                        }
+                    }
+                    publish(updated, filters);
+                    return;
+                }
+            }
+        }
+
+        private MessageFilter filterAt(int index) {
+            MessageFilter[] filters = members.filters;
+            return filters == null ? MessageFilter.ACCEPT_ALL : filters[index];
+        }
+
+        private void publish(MicroService[] services, MessageFilter[] filters) {
+            boolean filtering = false;
+            for (MessageFilter filter : filters) {
+                filtering |= filter.isFiltering();
+            }
+            members = services.length == 0 ? EMPTY : new Members(services, filtering ? filters : null);
+        }
+    }
+
+    /**
+     * The subscribers of a single broadcast class, through any of its supertypes,
+     * together with a snapshot of their mailboxes. The snapshot is rebuilt only when the subscribers, or
+     * their registration, change, so {@link #sendBroadcast(Broadcast)} walks a
+     * plain array without any lookup or allocation.
+     */
+    private static final class BroadcastTargets {
+        private static final MicroService[] NO_SERVICES = new MicroService[0];
+        private static final Mailbox[] NO_MAILBOXES = new Mailbox[0];
+
+        private static final BroadcastLog[] NO_LOGS = new BroadcastLog[0];
+
+        /**
+         * An immutable snapshot: {@code mailboxes[i]} belongs to {@code services[i]},
+         * whose filter is {@code filters[i]}; {@code filters} is null when none of them
+         * filters. Subscribers reading a {@link BroadcastLog} are not in these arrays;
+         * the broadcast is appended once to each of {@code logs} instead, their
+         * mailboxes apply their {@code logFilters}, and only the {@code logActors}
+         * among them need to be woken up.
+         */
+        private static final class Snapshot {
+            private final MicroService[] services;
+            private final Mailbox[] mailboxes;
+            private final MessageFilter[] filters;
+            private final BroadcastLog[] logs;
+            private final MicroService[] logActors;
+            private final Map<MicroService, MessageFilter> logFilters;
+
+            private Snapshot(MicroService[] services, Mailbox[] mailboxes, MessageFilter[] filters,
+                             BroadcastLog[] logs, MicroService[] logActors, Map<MicroService, MessageFilter> logFilters) {
+                this.services = services;
+                this.mailboxes = mailboxes;
+                this.filters = filters;
+                this.logs = logs;
+                this.logActors = logActors;
+                this.logFilters = logFilters;
+            }
+        }
+
+        private final Class<?> type;
+        private final Map<MicroService, MessageFilter> subscribers = new LinkedHashMap<>();
+        private volatile Snapshot snapshot = new Snapshot(NO_SERVICES, NO_MAILBOXES, null, NO_LOGS, NO_SERVICES,
+            Collections.<MicroService, MessageFilter>emptyMap());
+
+        private BroadcastTargets(Class<?> type) {
+            this.type = type;
+        }
+
+        private synchronized void add(MicroService m, MessageFilter filter, Map<MicroService, Mailbox> mailboxes) {
+            if (subscribers.put(m, filter) != filter) {
+                refresh(mailboxes);
+            }
+        }
+
+        /**
+         * Drops {@code m} from the current snapshot, without looking up the
+         * mailboxes of the others, so tearing down all subscribers stays cheap.
+         */
+        private synchronized void remove(MicroService m) {
+            if (subscribers.remove(m) == null) {
+                return;
+            }
+            Snapshot current = snapshot;
+            MicroService[] services = current.services;
+            for (int i = 0; i < services.length; i++) {
+                if (services[i] == m) {
+                    int size = services.length - 1;
+                    MessageFilter[] filters = null;
+                    if (current.filters != null) {
+                        filters = without(current.filters, i, new MessageFilter[size]);
+                        boolean filtering = false;
+                        for (MessageFilter filter : filters) {
+                            filtering |= filter.isFiltering();
+                        }
+                        filters = filtering ? filters : null;
+                    }
+                    snapshot = new Snapshot(without(services, i, new MicroService[size]),
+                        without(current.mailboxes, i, new Mailbox[size]), filters,
+                        current.logs, current.logActors, current.logFilters);
+                    return;
+                }
+            }
+            if (current.logFilters.containsKey(m)) {
+                Map<MicroService, MessageFilter> logFilters = new HashMap<>(current.logFilters);
+                logFilters.remove(m);
+                MicroService[] logActors = current.logActors;
+                for (int i = 0; i < logActors.length; i++) {
+                    if (logActors[i] == m) {
+                        logActors = without(logActors, i, new MicroService[logActors.length - 1]);
+                        break;
+                    }
+                }
+                snapshot = new Snapshot(services, current.mailboxes, current.filters,
+                    logFilters.isEmpty() ? NO_LOGS : current.logs, logActors, logFilters);
+            }
+        }
+
+        // Copies array without its element at index into the one shorter target.
+        private static <T> T[] without(T[] array, int index, T[] target) {
+            System.arraycopy(array, 0, target, 0, index);
+            System.arraycopy(array, index + 1, target, index, array.length - index - 1);
+            return target;
+        }
+
+        /**
+         * Rebuilds the snapshot from the registered subscribers.
+         */
+        private synchronized void refresh(Map<MicroService, Mailbox> mailboxes) {
+            List<MicroService> services = new ArrayList<>(subscribers.size());
+            List<Mailbox> boxes = new ArrayList<>(subscribers.size());
+            List<MessageFilter> filters = new ArrayList<>(subscribers.size());
+            boolean filtering = false;
+            List<BroadcastLog> logs = new ArrayList<>(1);
+            List<MicroService> logActors = new ArrayList<>();
+            Map<MicroService, MessageFilter> logFilters = new HashMap<>();
+            for (Map.Entry<MicroService, MessageFilter> subscriber : subscribers.entrySet()) {
+                MicroService m = subscriber.getKey();
+                Mailbox mailbox = mailboxes.get(m);
+                if (mailbox instanceof BroadcastLogMailbox) {
+                    BroadcastLog log = ((BroadcastLogMailbox) mailbox).getLog();
+                    if (!logs.contains(log)) {
+                        logs.add(log);
+                    }
+                    if (m.isActor()) {
+                        logActors.add(m);
+                    }
+                    logFilters.put(m, subscriber.getValue());
+                } else if (mailbox != null) {
+                    services.add(m);
+                    boxes.add(mailbox);
+                    filters.add(subscriber.getValue());
+                    filtering |= subscriber.getValue().isFiltering();
+                }
+            }
+            snapshot = new Snapshot(services.toArray(NO_SERVICES), boxes.toArray(NO_MAILBOXES),
+                filtering ? filters.toArray(new MessageFilter[0]) : null,
+                logs.toArray(NO_LOGS), logActors.toArray(NO_SERVICES), logFilters);
+        }
+    }
+
+    private final ConcurrentHashMap<MicroService, Mailbox> mailboxes;
+    // The targets and routes resolved for each concrete message class, by type id, built on its first send.
+    private final TypeTable<BroadcastTargets> broadcastTargets;
+    private final TypeTable<EventRoute> eventRoutes;
+    // The resolved targets and routes of the subclasses of each message type, updated when it is subscribed to.
+    private final ConcurrentHashMap<Class<?>, Set<BroadcastTargets>> broadcastTargetsFrom;
+    private final ConcurrentHashMap<Class<?>, Set<EventRoute>> eventRoutesFrom;
+    // The subscribers of each message type, as subscribed, with their filters.
+    private final ConcurrentHashMap<Class<? extends Message>, Map<MicroService, MessageFilter>> subscribersOf;
+    private final ConcurrentHashMap<Class<?>, RoutingStrategy> routingOf;
+    // The message types each micro-service subscribed to, with their filters, so unregister touches only those.
+    private final ConcurrentHashMap<MicroService, Map<Class<? extends Message>, MessageFilter>> subscriptionsOf;
+    private final PendingFutures futures;
+    private final ConcurrentHashMap<String, Integer> highWaterMarks;
+    private final ConcurrentHashMap<String, Long> filteredMessages;
+    private final ToIntFunction<MicroService> queueDepth;
+    private final ConcurrentHashMap<MicroService, InFlight.Share> inFlightShares;
+    private final ConcurrentHashMap<String, LagHistogram> deliveryLags;
+
+    private volatile MailboxFactory mailboxFactory;
+    private volatile InFlight inFlight;
+    private volatile BroadcastLog broadcastLog;
+    private volatile Callback<Message> deadLetterSink;
+
+    /**
+     * Creates a bus of its own, for running a simulation alongside others in the
+     * same process; {@link #getInstance()} is the bus shared by everything else.
+     */
+    public MessageBusImpl() {
+        mailboxes = new ConcurrentHashMap<>();
+        broadcastTargets = new TypeTable<>();
+        eventRoutes = new TypeTable<>();
+        broadcastTargetsFrom = new ConcurrentHashMap<>();
+        eventRoutesFrom = new ConcurrentHashMap<>();
+        subscribersOf = new ConcurrentHashMap<>();
+        routingOf = new ConcurrentHashMap<>();
+        subscriptionsOf = new ConcurrentHashMap<>();
+        futures = new PendingFutures();
+        highWaterMarks = new ConcurrentHashMap<>();
+        filteredMessages = new ConcurrentHashMap<>();
+        queueDepth = m -> {
+            Mailbox mailbox = mailboxes.get(m);
+            return mailbox == null ? Integer.MAX_VALUE : mailbox.size();
+        };
+        inFlightShares = new ConcurrentHashMap<>();
+        deliveryLags = new ConcurrentHashMap<>();
+        mailboxFactory = m -> new QueueMailbox();
+        deadLetterSink = message -> System.err.println("Dead letter: " + message);
+    }
+
+    /**
+     * Sets the factory used to create the mailbox of every micro-service registered from now on.
+     */
+    public void setMailboxFactory(MailboxFactory mailboxFactory) {
+        this.mailboxFactory = mailboxFactory;
+    }
+
+    /**
+     * Selects how broadcasts reach the micro-services registered from now on. With
+     * the broadcast log enabled, a broadcast is appended once to a shared log that
+     * each subscriber reads through its own cursor, instead of being queued in every
+     * subscriber's mailbox; their mailboxes then hold only events, are unbounded,
+     * and do not use the mailbox factory.
+     */
+    public void setBroadcastLog(boolean enabled) {
+        this.broadcastLog = enabled ? new BroadcastLog() : null;
+    }
+
+    /**
+     * Selects how the events of {@code type}, and of its subtypes without a
+     * strategy of their own, are spread among their subscribers. Events are routed
+     * round-robin unless set otherwise.
+     */
+    public void setRouting(Class<? extends Event<?>> type, RoutingStrategy strategy) {
+        routingOf.put(type, strategy);
+        for (EventRoute route : resolvedFrom(eventRoutesFrom, type)) {
+            if (routingTypeOf(route.type) == type) {
+                route.router = strategy.create();
+            }
+        }
+    }
+
+    /**
+     * @return The most specific supertype of {@code type} with a routing strategy, or null.
+     */
+    private Class<?> routingTypeOf(Class<?> type) {
+        for (Class<?> supertype : MessageTypes.supertypes(type)) {
+            if (routingOf.containsKey(supertype)) {
+                return supertype;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the callback that receives every message refused by a mailbox whose
+     * policy is {@link BackpressurePolicy#REJECT}.
+     */
+    public void setDeadLetterSink(Callback<Message> deadLetterSink) {
+        this.deadLetterSink = deadLetterSink;
+    }
+
+    /**
+     * Sets the time after which the future of an event that was never completed
+     * expires: it is resolved with null and dropped. Expired futures are
+     * counted by {@link #getExpiredFutures()}.
+     * <p>
+     * @param timeout The expiry timeout, 0 to keep futures until their event is completed.
+     */
+    public void setFutureTimeout(long timeout, TimeUnit unit) {
+        futures.setTimeout(timeout, unit);
+    }
+
+    /**
+     * @return The number of futures that expired without being completed.
+     */
+    public long getExpiredFutures() {
+        return futures.getExpired();
+    }
+
+    /**
+     * @return The mailbox high-water mark of every micro-service that was
+     *         unregistered, by micro-service name.
+     */
+    public Map<String, Integer> getHighWaterMarks() {
+        return Collections.unmodifiableMap(highWaterMarks);
+    }
+
+    /**
+     * @return The number of messages the filter of each subscription kept from its
+     *         subscriber, by "micro-service name/message type", for the micro-services
+     *         that were unregistered.
+     */
+    public Map<String, Long> getFilteredMessages() {
+        return Collections.unmodifiableMap(filteredMessages);
+    }
+
+    /**
+     * @return A copy of the delays with which every micro-service started handling
+     *         the {@link ScheduledMessage scheduled messages} it received, in
+     *         nanoseconds, by micro-service name.
+     */
+    public Map<String, LagHistogram> getDeliveryLags() {
+        Map<String, LagHistogram> copies = new TreeMap<>();
+        deliveryLags.forEach((name, lags) -> copies.put(name, lags.copy()));
+        return copies;
+    }
+
+    /**
+     * Called as {@code m} starts handling a scheduled message, {@code lagNanos} after it was due.
+     */
+    void recordDeliveryLag(MicroService m, long lagNanos) {
+        deliveryLags.computeIfAbsent(m.getName(), k -> new LagHistogram()).record(lagNanos);
+    }
+
+    private void discard(MicroService m, Mailbox mailbox, Message message) {
+        messageDone(m);
+        if (message instanceof Event) {
+            futures.remove((Event<?>) message);
+        }
+        if (mailbox.getPolicy() == BackpressurePolicy.REJECT) {
+            deadLetterSink.call(message);
+        }
+    }
+
+    private Map<Class<? extends Message>, MessageFilter> subscriptionsOf(MicroService m) {
+        return subscriptionsOf.computeIfAbsent(m, k -> new ConcurrentHashMap<>());
+    }
+
+    private static <R> Set<R> resolvedFrom(ConcurrentHashMap<Class<?>, Set<R>> resolved, Class<?> type) {
+        return resolved.computeIfAbsent(type, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Records the subscription of {@code m} to {@code type} before the resolved
+     * targets and routes of its subclasses are updated; resolving a class does the
+     * opposite, so each sees what the other did.
+     */
+    private void addSubscriber(Class<? extends Message> type, MessageFilter filter, MicroService m) {
+        subscriptionsOf(m).put(type, filter);
+        subscribersOf.computeIfAbsent(type, k -> Collections.synchronizedMap(new LinkedHashMap<>())).put(m, filter);
+    }
+
+    /**
+     * @return The filter of the subscription of {@code m} to the most specific
+     *         supertype of {@code type}, whose callback handles the messages of
+     *         class {@code type}, whichever subscription came first.
+     */
+    private MessageFilter filterOf(MicroService m, Class<?> type) {
+        Map<Class<? extends Message>, MessageFilter> types = subscriptionsOf.get(m);
+        if (types != null) {
+            for (Class<? extends Message> supertype : MessageTypes.supertypes(type)) {
+                MessageFilter filter = types.get(supertype);
+                if (filter != null) {
+                    return filter;
+                }
+            }
+        }
+        return MessageFilter.ACCEPT_ALL;
+    }
+
+    /**
+     * @return The route of the events of class {@code type}, made of the subscribers
+     *         of all its supertypes; resolved once and kept up to date afterwards.
+     */
+    private EventRoute routeOf(Class<?> type) {
+        int id = MessageTypes.idOf(type);
+        EventRoute route = eventRoutes.get(id);
+        return route != null ? route : eventRoutes.computeIfAbsent(id, () -> resolveRoute(type));
+    }
+
+    private EventRoute resolveRoute(Class<?> type) {
+        EventRoute route = new EventRoute(type);
+        Class<?> routingType = routingTypeOf(type);
+        if (routingType != null) {
+            route.router = routingOf.get(routingType).create();
+        }
+        List<Class<? extends Message>> supertypes = MessageTypes.supertypes(type);
+        for (Class<? extends Message> supertype : supertypes) {
+            resolvedFrom(eventRoutesFrom, supertype).add(route);
+        }
+        for (Class<? extends Message> supertype : supertypes) {
+            Map<MicroService, MessageFilter> subscribers = subscribersOf.get(supertype);
+            if (subscribers != null) {
+                synchronized (subscribers) {
+                    subscribers.keySet().forEach(m -> route.add(m, filterOf(m, type)));
+                }
+            }
+        }
+        return route;
+    }
+
+    /**
+     * @return The targets of the broadcasts of class {@code type}, made of the
+     *         subscribers of all its supertypes; resolved once and kept up to date afterwards.
+     */
+    private BroadcastTargets targetsOf(Class<?> type) {
+        int id = MessageTypes.idOf(type);
+        BroadcastTargets targets = broadcastTargets.get(id);
+        return targets != null ? targets : broadcastTargets.computeIfAbsent(id, () -> resolveTargets(type));
+    }
+
+    private BroadcastTargets resolveTargets(Class<?> type) {
+        BroadcastTargets targets = new BroadcastTargets(type);
+        List<Class<? extends Message>> supertypes = MessageTypes.supertypes(type);
+        for (Class<? extends Message> supertype : supertypes) {
+            resolvedFrom(broadcastTargetsFrom, supertype).add(targets);
+        }
+        for (Class<? extends Message> supertype : supertypes) {
+            Map<MicroService, MessageFilter> subscribers = subscribersOf.get(supertype);
+            if (subscribers != null) {
+                synchronized (subscribers) {
+                    subscribers.keySet().forEach(m -> targets.add(m, filterOf(m, type), mailboxes));
+                }
+            }
+        }
+        return targets;
     }
 
     @Override
     public <T> void subscribeEvent(Class<? extends Event<T>> type, MicroService m) {
-        subscriptionsEvents.putIfAbsent(type, new CopyOnWriteArrayList<>());
-        subscriptionsEvents.get(type).add(m);
-        roundRobinQueues.putIfAbsent(type, new ConcurrentLinkedQueue<>());
-        roundRobinQueues.get(type).add(m);
+        subscribeEvent(type, null, m);
+    }
+
+    /**
+     * Subscribes {@code m} to the events of type {@code type}, or of any of its
+     * subtypes, that {@code filter} accepts. A micro-service subscribed to several
+     * supertypes of an event is offered it once. The filter is checked before an event is routed: an event goes to
+     * one of the subscribers accepting it, and is dropped, as if the type had no
+     * subscriber, when none does.
+     * <p>
+     * @param filter The predicate an event must satisfy, null to accept all of them.
+     */
+    @Override
+    public <T, E extends Event<T>> void subscribeEvent(Class<? extends E> type, Predicate<? super E> filter, MicroService m) {
+        MessageFilter subscription = filter == null ? MessageFilter.ACCEPT_ALL : new MessageFilter(filter);
+        addSubscriber(type, subscription, m);
+        for (EventRoute route : resolvedFrom(eventRoutesFrom, type)) {
+            route.add(m, filterOf(m, route.type));
+        }
     }
 
     @Override
     public void subscribeBroadcast(Class<? extends Broadcast> type, MicroService m) {
-        subscriptionsBroadcast.putIfAbsent(type, new CopyOnWriteArrayList<>());
-        subscriptionsBroadcast.get(type).add(m);
+        subscribeBroadcast(type, null, m);
+    }
+
+    /**
+     * Subscribes {@code m} to the broadcasts of type {@code type}, or of any of its
+     * subtypes, that {@code filter} accepts. A micro-service subscribed to several
+     * supertypes of a broadcast receives it once. The others are never queued for {@code m}, so they do not wake it up.
+     * <p>
+     * @param filter The predicate a broadcast must satisfy, null to accept all of them.
+     */
+    @Override
+    public <B extends Broadcast> void subscribeBroadcast(Class<? extends B> type, Predicate<? super B> filter, MicroService m) {
+        MessageFilter subscription = filter == null ? MessageFilter.ACCEPT_ALL : new MessageFilter(filter);
+        Mailbox mailbox = mailboxes.get(m);
+        if (mailbox instanceof BroadcastLogMailbox) {
+            ((BroadcastLogMailbox) mailbox).startReading();
+        }
+        addSubscriber(type, subscription, m);
+        for (BroadcastTargets targets : resolvedFrom(broadcastTargetsFrom, type)) {
+            targets.add(m, filterOf(m, targets.type), mailboxes);
+        }
+    }
+
+    /**
+     * Selects whether the messages sent to the micro-services registered from now
+     * on are counted until handled, for {@link #awaitQuiescence()}. Counting takes
+     * a lock per message, so it is off unless needed.
+     */
+    public void setInFlightTracking(boolean enabled) {
+        this.inFlight = enabled ? new InFlight() : null;
+    }
+
+    /**
+     * @return The number of messages queued or being handled, 0 when not tracking them.
+     */
+    public long getInFlight() {
+        InFlight tracker = inFlight;
+        return tracker == null ? 0 : tracker.get();
+    }
+
+    /**
+     * Waits until every message sent on this bus is handled, including the messages
+     * sent while handling them. Messages queued for a micro-service that unregisters
+     * are not waited for. Returns at once when not tracking messages.
+     */
+    public void awaitQuiescence() throws InterruptedException {
+        InFlight tracker = inFlight;
+        if (tracker != null) {
+            tracker.awaitZero();
+        }
+    }
+
+    /**
+     * Sets {@code listener} to be run once, as soon as no message sent on this bus
+     * is queued or being handled and no micro-service declared pending work,
+     * see {@link MicroService#setPendingWork(long)}. Runs it at once if that is
+     * already so. It runs on the thread that handled the last message or
+     * cleared the last pending work.
+     *
+     * @throws IllegalStateException if this bus is not tracking messages in flight.
+     */
+    public void setQuiescenceListener(Runnable listener) {
+        InFlight tracker = inFlight;
+        if (tracker == null) {
+            throw new IllegalStateException("Quiescence is detected only when tracking messages in flight.");
+        }
+        tracker.setQuiescenceListener(listener);
+    }
+
+    /**
+     * Called by {@code m} to declare the work it holds outside its mailbox.
+     */
+    void setPendingWork(MicroService m, long units) {
+        InFlight tracker = inFlight;
+        if (tracker != null) {
+            InFlight.Share share = inFlightShares.get(m);
+            if (share != null) {
+                tracker.setPending(share, units);
+            }
+        }
+    }
+
+    private void addInFlight(MicroService m, int messages) {
+        InFlight tracker = inFlight;
+        if (tracker != null) {
+            InFlight.Share share = inFlightShares.get(m);
+            if (share != null) {
+                tracker.add(share, messages);
+            }
+        }
+    }
+
+    /**
+     * Called once a message queued for {@code m} is handled, or will never be:
+     * it was discarded, rejected by a filter of {@code m}, or merged into another.
+     */
+    void messageDone(MicroService m) {
+        InFlight tracker = inFlight;
+        if (tracker != null) {
+            InFlight.Share share = inFlightShares.get(m);
+            if (share != null) {
+                tracker.done(share, 1);
+            }
+        }
     }
 
     @Override
     public <T> void complete(Event<T> e, T result) {
         @SuppressWarnings("unchecked")
-        Future<T> future = (Future<T>) futures.get(e);
+        Future<T> future = (Future<T>) futures.remove(e);
         if (future != null) {
             future.resolve(result);
-            futures.remove(e);
         }
     }
 
     @Override
     public void sendBroadcast(Broadcast b) {
-        List<MicroService> subscribers = subscriptionsBroadcast.getOrDefault(b.getClass(), new CopyOnWriteArrayList<>());
-        for (MicroService m : subscribers) {
-            BlockingQueue<Message> queue = queues.get(m);
-            if (queue != null) {
-                queue.offer(b);
+        BroadcastTargets.Snapshot snapshot = targetsOf(b.getClass()).snapshot;
+        // A receiver may handle the broadcast before it is queued for the next one.
+        InFlight tracker = inFlight;
+        if (tracker != null) {
+            tracker.beginSend();
+        }
+        try {
+            offerToTargets(b, snapshot);
+        } finally {
+            if (tracker != null) {
+                tracker.endSend();
             }
         }
     }
 
-    @Override
-    public <T> Future<T> sendEvent(Event<T> e) {
-        Queue<MicroService> queue = roundRobinQueues.get(e.getClass());
-        if (queue == null || queue.isEmpty()) {
-            return null;
+    private void offerToTargets(Broadcast b, BroadcastTargets.Snapshot snapshot) {
+        Mailbox[] targetMailboxes = snapshot.mailboxes;
+        MicroService[] targetServices = snapshot.services;
+        MessageFilter[] filters = snapshot.filters;
+        for (int i = 0; i < targetMailboxes.length; i++) {
+            if (filters != null && !filters[i].accepts(b)) {
+                continue;
+            }
+            addInFlight(targetServices[i], 1);
+            Message discarded = targetMailboxes[i].offer(b);
+            if (discarded != null) {
+                discard(targetServices[i], targetMailboxes[i], discarded);
+            }
+            targetServices[i].onMessageQueued();
         }
-        MicroService m;
-        synchronized (queue) {
-            m = queue.poll();
-            if (m != null) {
-                queue.add(m);
+        if (inFlight != null) {
+            for (MicroService m : snapshot.logFilters.keySet()) {
+                addInFlight(m, 1);
             }
         }
+        for (BroadcastLog log : snapshot.logs) {
+            log.append(b, snapshot.logFilters);
+        }
+        for (MicroService m : snapshot.logActors) {
+            m.onMessageQueued();
+        }
+    }
+
+    @Override
+    public <T> Future<T> sendEvent(Event<T> e) {
+        MicroService m = routeOf(e.getClass()).next(e, queueDepth);
         if (m == null) {
             return null;
         }
-        BlockingQueue<Message> serviceQueue = queues.get(m);
-        if (serviceQueue == null) {
+        Mailbox mailbox = mailboxes.get(m);
+        if (mailbox == null) {
             return null;
         }
-        Future<T> future = new Future<>();
-        futures.put(e, future);
-        serviceQueue.offer(e);
+        Future<T> future = null;
+        if (!(e instanceof OneWayEvent)) {
+            future = new Future<>();
+            futures.put(e, future);
+        }
+        addInFlight(m, 1);
+        Message discarded = mailbox.offer(e);
+        m.onMessageQueued();
+        if (discarded != null) {
+            discard(m, mailbox, discarded);
+            if (discarded == e) {
+                return null;
+            }
+        }
         return future;
     }
 
+    @Override
+    public <T> List<Future<T>> sendEvents(List<? extends Event<T>> events) {
+        List<Future<T>> futuresOfEvents = new ArrayList<>(Collections.nCopies(events.size(), (Future<T>) null));
+        // As in sendBroadcast, the events are spread over several receivers.
+        InFlight tracker = inFlight;
+        if (tracker != null) {
+            tracker.beginSend();
+        }
+        try {
+            int from = 0;
+            while (from < events.size()) {
+                Class<?> type = events.get(from).getClass();
+                int to = from + 1;
+                while (to < events.size() && events.get(to).getClass() == type) {
+                    to++;
+                }
+                sendRun(events, from, to, futuresOfEvents);
+                from = to;
+            }
+        } finally {
+            if (tracker != null) {
+                tracker.endSend();
+            }
+        }
+        return futuresOfEvents;
+    }
+
+    /**
+     * Sends {@code events[from, to)}, which are all of the same type: each event
+     * goes to the subscriber its router picks for it, and every subscriber receives
+     * its share with one offerAll. Under round-robin the event at cursor position
+     * {@code first + i} is assigned without consulting the router per event.
+     */
+    private <T> void sendRun(List<? extends Event<T>> events, int from, int to, List<Future<T>> futuresOfEvents) {
+        EventRoute route = routeOf(events.get(from).getClass());
+        EventRoute.Members members = route.members;
+        if (members.filters != null) {
+            // Each event may have its own subscribers.
+            for (int i = from; i < to; i++) {
+                futuresOfEvents.set(i, sendEvent(events.get(i)));
+            }
+            return;
+        }
+        MicroService[] subscribers = members.services;
+        if (subscribers.length == 0) {
+            return;
+        }
+        Router router = route.router;
+        int count = to - from;
+        int[] receiverOf = new int[count];
+        if (router instanceof RoundRobinRouter) {
+            int first = Math.floorMod(((RoundRobinRouter) router).advance(count), subscribers.length);
+            for (int i = 0; i < count; i++) {
+                receiverOf[i] = (first + i) % subscribers.length;
+            }
+        } else {
+            // Count the events already assigned in this run as queued.
+            int[] assigned = new int[subscribers.length];
+            ToIntFunction<MicroService> depth = m -> {
+                int base = queueDepth.applyAsInt(m);
+                for (int s = 0; s < subscribers.length; s++) {
+                    if (subscribers[s] == m) {
+                        return base == Integer.MAX_VALUE ? base : base + assigned[s];
+                    }
+                }
+                return base;
+            };
+            for (int i = 0; i < count; i++) {
+                receiverOf[i] = router.route(events.get(from + i), subscribers, depth);
+                assigned[receiverOf[i]]++;
+            }
+        }
+        for (int r = 0; r < subscribers.length; r++) {
+            MicroService m = subscribers[r];
+            Mailbox mailbox = mailboxes.get(m);
+            if (mailbox == null) {
+                continue;
+            }
+            List<Message> share = null;
+            for (int i = 0; i < count; i++) {
+                if (receiverOf[i] != r) {
+                    continue;
+                }
+                Event<T> e = events.get(from + i);
+                if (!(e instanceof OneWayEvent)) {
+                    Future<T> future = new Future<>();
+                    futures.put(e, future);
+                    futuresOfEvents.set(from + i, future);
+                }
+                if (share == null) {
+                    share = new ArrayList<>(count / subscribers.length + 1);
+                }
+                share.add(e);
+            }
+            if (share == null) {
+                continue;
+            }
+            addInFlight(m, share.size());
+            List<Message> discardedShare = mailbox.offerAll(share);
+            m.onMessageQueued();
+            for (Message discarded : discardedShare) {
+                discard(m, mailbox, discarded);
+                for (int i = 0; i < count; i++) {
+                    if (events.get(from + i) == discarded) {
+                        futuresOfEvents.set(from + i, null);
+                    }
+                }
+            }
+        }
+    }
+
 	@Override
-    public synchronized void register(MicroService m) {
-        queues.putIfAbsent(m, new LinkedBlockingQueue<>());
+    public void register(MicroService m) {
+        if (inFlight != null) {
+            inFlightShares.putIfAbsent(m, new InFlight.Share());
+        }
+        BroadcastLog log = broadcastLog;
+        if (log != null) {
+            Mailbox mailbox = mailboxes.computeIfAbsent(m, k -> new BroadcastLogMailbox(log, k, () -> messageDone(k)));
+            Map<Class<? extends Message>, MessageFilter> types = subscriptionsOf.get(m);
+            if (mailbox instanceof BroadcastLogMailbox && types != null
+                    && types.keySet().stream().anyMatch(Broadcast.class::isAssignableFrom)) {
+                ((BroadcastLogMailbox) mailbox).startReading();
+            }
+        } else {
+            mailboxes.computeIfAbsent(m, k -> {
+                Mailbox mailbox = mailboxFactory.create(k);
+                mailbox.setCoalescingListener(() -> messageDone(k));
+                return mailbox;
+            });
+        }
+        Map<Class<? extends Message>, MessageFilter> types = subscriptionsOf.get(m);
+        if (types != null) {
+            // Subscribed before registering: the snapshots now have a mailbox to point to.
+            for (Class<? extends Message> type : types.keySet()) {
+                for (BroadcastTargets targets : resolvedFrom(broadcastTargetsFrom, type)) {
+                    targets.refresh(mailboxes);
+                }
+            }
+        }
     }
 
+    /**
+     * Removes the mailbox of {@code m} and its subscriptions. Only the subscriber
+     * lists of the types {@code m} subscribed to, and those resolved from them for
+     * their subclasses, are touched, and no global lock is taken, so many services
+     * can unregister at once.
+     */
     @Override
-    public synchronized void unregister(MicroService m) {
-        queues.remove(m);
-        subscriptionsEvents.values().forEach(list -> list.remove(m));
-        subscriptionsBroadcast.values().forEach(list -> list.remove(m));
-        roundRobinQueues.values().forEach(queue -> queue.remove(m));
+    public void unregister(MicroService m) {
+        Mailbox mailbox = mailboxes.remove(m);
+        if (mailbox != null) {
+            highWaterMarks.merge(m.getName(), mailbox.getHighWaterMark(), Math::max);
+        }
+        if (mailbox instanceof BroadcastLogMailbox) {
+            ((BroadcastLogMailbox) mailbox).stopReading();
+        }
+        InFlight.Share share = inFlightShares.remove(m);
+        InFlight tracker = inFlight;
+        if (share != null && tracker != null) {
+            tracker.close(share);
+        }
+        Map<Class<? extends Message>, MessageFilter> types = subscriptionsOf.remove(m);
+        if (types == null) {
+            return;
+        }
+        for (Map.Entry<Class<? extends Message>, MessageFilter> subscription : types.entrySet()) {
+            Class<? extends Message> type = subscription.getKey();
+            if (subscription.getValue().isFiltering()) {
+                filteredMessages.merge(m.getName() + "/" + type.getSimpleName(),
+                    subscription.getValue().getFiltered(), Long::sum);
+            }
+            Map<MicroService, MessageFilter> subscribers = subscribersOf.get(type);
+            if (subscribers != null) {
+                subscribers.remove(m);
+            }
+            for (BroadcastTargets targets : resolvedFrom(broadcastTargetsFrom, type)) {
+                targets.remove(m);
+            }
+            for (EventRoute route : resolvedFrom(eventRoutesFrom, type)) {
+                route.remove(m);
+            }
+        }
     }
 
 
     @Override
     public Message awaitMessage(MicroService m) throws InterruptedException {
-        BlockingQueue<Message> queue = queues.get(m);
-        if (queue == null) {
+        Mailbox mailbox = mailboxes.get(m);
+        if (mailbox == null) {
             throw new IllegalStateException("MicroService is not registered.");
         }
-        return queue.take();
+        return mailbox.take();
+    }
+
+    /**
+     * Takes the next message of {@code m} without waiting, for services
+     * scheduled by an {@link ActorScheduler}.
+     * @return The next message, or null if the mailbox of {@code m} is empty.
+     */
+    Message pollMessage(MicroService m) {
+        Mailbox mailbox = mailboxes.get(m);
+        if (mailbox == null) {
+            throw new IllegalStateException("MicroService is not registered.");
+        }
+        return mailbox.poll();
+    }
+
+    /**
+     * @return Whether the mailbox of {@code m} holds a message.
+     */
+    boolean hasMessages(MicroService m) {
+        Mailbox mailbox = mailboxes.get(m);
+        return mailbox != null && mailbox.size() > 0;
     }
 
     @Override
     public boolean isRegistered(MicroService m) {
-        // In this design, 'queues' is the data structure that tracks registered microservices.
-        return queues.containsKey(m);
+        // In this design, 'mailboxes' is the data structure that tracks registered microservices.
+        return mailboxes.containsKey(m);
     }
 }
@@ -0,0 +1,56 @@
+package bgu.spl.mics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * The content filter of one subscription, checked by the {@link MessageBusImpl}
+ * before a message is queued, so that messages the subscriber does not want
+ * never wake it up. Counts the messages it filtered out.
+ */
+final class MessageFilter {
+
+    /**
+     * The filter of a subscription without a predicate.
+     */
+    static final MessageFilter ACCEPT_ALL = new MessageFilter(null);
+
+    private final Predicate<Message> predicate;
+    private final LongAdder filtered;
+
+    /**
+     * @param predicate Tells whether a message of the subscribed type is wanted;
+     *                  null to accept every message.
+     */
+    @SuppressWarnings("unchecked")
+    MessageFilter(Predicate<?> predicate) {
+        // The bus tests only messages of the subscribed type.
+        this.predicate = (Predicate<Message>) predicate;
+        this.filtered = new LongAdder();
+    }
+
+    /**
+     * @return Whether {@code message} should be delivered; counts it otherwise.
+     */
+    boolean accepts(Message message) {
+        if (predicate == null || predicate.test(message)) {
+            return true;
+        }
+        filtered.increment();
+        return false;
+    }
+
+    /**
+     * @return Whether this filter has a predicate.
+     */
+    boolean isFiltering() {
+        return predicate != null;
+    }
+
+    /**
+     * @return The number of messages filtered out so far.
+     */
+    long getFiltered() {
+        return filtered.sum();
+    }
+}
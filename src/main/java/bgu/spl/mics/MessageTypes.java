@@ -0,0 +1,65 @@
+package bgu.spl.mics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The types a message of a given class can be subscribed to by: the class
+ * itself, its superclasses and its interfaces, up to {@link Message}. Also
+ * numbers the message classes densely, in the order they are first seen, so
+ * that per-class tables can be arrays; see {@link TypeTable}.
+ */
+final class MessageTypes {
+
+    private static final ConcurrentHashMap<Class<?>, List<Class<? extends Message>>> SUPERTYPES = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    private static final ClassValue<Integer> IDS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return NEXT_ID.getAndIncrement();
+        }
+    };
+
+    private MessageTypes() {
+    }
+
+    /**
+     * @return The id of {@code type}, assigned the first time it is asked for:
+     *         0 for the first class, 1 for the second, and so on. A number may be
+     *         skipped when two threads ask for a new class at once.
+     */
+    static int idOf(Class<?> type) {
+        return IDS.get(type);
+    }
+
+    /**
+     * @return The message types {@code type} is assignable to, most specific
+     *         first: {@code type}, its superclasses, then their interfaces
+     *         breadth-first.
+     */
+    static List<Class<? extends Message>> supertypes(Class<?> type) {
+        return SUPERTYPES.computeIfAbsent(type, MessageTypes::collect);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Class<? extends Message>> collect(Class<?> type) {
+        List<Class<? extends Message>> supertypes = new ArrayList<>();
+        ArrayDeque<Class<?>> interfaces = new ArrayDeque<>();
+        for (Class<?> c = type; c != null && Message.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            supertypes.add((Class<? extends Message>) c);
+            Collections.addAll(interfaces, c.getInterfaces());
+        }
+        while (!interfaces.isEmpty()) {
+            Class<?> i = interfaces.poll();
+            if (Message.class.isAssignableFrom(i) && !supertypes.contains(i)) {
+                supertypes.add((Class<? extends Message>) i);
+                Collections.addAll(interfaces, i.getInterfaces());
+            }
+        }
+        return Collections.unmodifiableList(supertypes);
+    }
+}
@@ -1,7 +1,11 @@
 package bgu.spl.mics;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 /**
  * The MicroService is an abstract class that any micro-service in the system
@@ -17,8 +21,14 @@ import java.util.Map;
  * message-queue (see {@link MessageBus#register(bgu.spl.mics.MicroService)}
  * method). The abstract MicroService stores this callback together with the
  * type of the message is related to.
- *
- * Only private fields and methods may be added to this class.
+ * <p>
+ * The subscribed type may be a superclass or an interface of the messages: a
+ * message is handed to the callback of the most specific type it was
+ * subscribed by, resolved once per message class.
+ * <p>
+ * A micro-service runs either on a thread of its own, through {@link #run()},
+ * or as an actor of an {@link ActorScheduler}, which runs it on a shared pool
+ * only while its mailbox holds messages. The callbacks behave the same in both.
  * <p>
  */
 public abstract class MicroService implements Runnable {
@@ -26,16 +36,32 @@ public abstract class MicroService implements Runnable {
     private boolean terminated = false;
     private final String name;
     private final Map<Class<? extends Message>, Callback<?>> callbackMap;
+    // The callback of each message class received so far, by type id, through its most specific subscribed supertype.
+    private Callback<?>[] resolvedCallbacks;
     private final MessageBus messageBus;
+    private volatile ActorScheduler actorScheduler;
+    private volatile StartupCoordinator startupCoordinator;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
 
     /**
      * @param name the micro-service name (used mainly for debugging purposes -
      *             does not have to be unique)
      */
     public MicroService(String name) {
+        this(name, MessageBusImpl.getInstance());
+    }
+
+    /**
+     * @param name       the micro-service name (used mainly for debugging purposes -
+     *                   does not have to be unique)
+     * @param messageBus the message-bus this micro-service communicates through,
+     *                   instead of the singleton one
+     */
+    protected MicroService(String name, MessageBus messageBus) {
         this.name = name;
         this.callbackMap = new HashMap<>();
-        this.messageBus = MessageBusImpl.getInstance();
+        this.resolvedCallbacks = new Callback<?>[16];
+        this.messageBus = messageBus;
     }
 
     /**
@@ -62,6 +88,28 @@ public abstract class MicroService implements Runnable {
     protected final <T, E extends Event<T>> void subscribeEvent(Class<E> type, Callback<E> callback) {
         messageBus.subscribeEvent(type, this);
         callbackMap.put(type, callback);
+        Arrays.fill(resolvedCallbacks, null);
+    }
+
+    /**
+     * Subscribes to the events of type {@code type} that {@code filter} accepts,
+     * with the callback {@code callback}. The message-bus checks the filter before
+     * routing an event, so the events it rejects are given to other subscribers
+     * and never wake this micro-service up.
+     * <p>
+     * @param <E>      The type of event to subscribe to.
+     * @param <T>      The type of result expected for the subscribed event.
+     * @param type     The {@link Class} representing the type of event to
+     *                 subscribe to.
+     * @param filter   The predicate an event must satisfy to be received.
+     * @param callback The callback that should be called when messages of type
+     *                 {@code type} are taken from this micro-service message
+     *                 queue.
+     */
+    protected final <T, E extends Event<T>> void subscribeEvent(Class<E> type, Predicate<? super E> filter, Callback<E> callback) {
+        messageBus.<T, E>subscribeEvent(type, filter, this);
+        callbackMap.put(type, callback);
+        Arrays.fill(resolvedCallbacks, null);
     }
 
     /**
@@ -87,6 +135,27 @@ public abstract class MicroService implements Runnable {
     protected final <B extends Broadcast> void subscribeBroadcast(Class<B> type, Callback<B> callback) {
         messageBus.subscribeBroadcast(type, this);
         callbackMap.put(type, callback);
+        Arrays.fill(resolvedCallbacks, null);
+    }
+
+    /**
+     * Subscribes to the broadcast messages of type {@code type} that {@code filter}
+     * accepts, with the callback {@code callback}. The message-bus checks the filter
+     * before queueing a broadcast, so the broadcasts it rejects never wake this
+     * micro-service up.
+     * <p>
+     * @param <B>      The type of broadcast message to subscribe to
+     * @param type     The {@link Class} representing the type of broadcast
+     *                 message to subscribe to.
+     * @param filter   The predicate a broadcast must satisfy to be received.
+     * @param callback The callback that should be called when messages of type
+     *                 {@code type} are taken from this micro-service message
+     *                 queue.
+     */
+    protected final <B extends Broadcast> void subscribeBroadcast(Class<B> type, Predicate<? super B> filter, Callback<B> callback) {
+        messageBus.subscribeBroadcast(type, filter, this);
+        callbackMap.put(type, callback);
+        Arrays.fill(resolvedCallbacks, null);
     }
 
     /**
@@ -99,12 +168,28 @@ public abstract class MicroService implements Runnable {
      * @param e         The event to send
      * @return  		{@link Future<T>} object that may be resolved later by a different
      *         			micro-service processing this event.
-     * 	       			null in case no micro-service has subscribed to {@code e.getClass()}.
+     * 	       			null in case no micro-service has subscribed to {@code e.getClass()}
+     * 	       			or {@code e} is a {@link OneWayEvent}.
      */
     protected final <T> Future<T> sendEvent(Event<T> e) {
         return messageBus.sendEvent(e);
     }
 
+    /**
+     * Sends the events {@code events} using the message-bus in a single batch. This
+     * is cheaper than calling {@link #sendEvent(Event)} for each of them when several
+     * events are ready at once. This method must be Non-Blocking.
+     * <p>
+     * @param <T>       The type of the expected result of the events.
+     * @param events    The events to send.
+     * @return  		A list of {@link Future<T>} objects, one per event, in the same order.
+     * 	       			An entry is null when {@link #sendEvent(Event)} would have
+     * 	       			returned null for that event.
+     */
+    protected final <T> List<Future<T>> sendEvents(List<? extends Event<T>> events) {
+        return messageBus.sendEvents(events);
+    }
+
     /**
      * A Micro-Service calls this method in order to send the broadcast message {@code b} using the message-bus
      * to all the services subscribed to it.
@@ -152,6 +237,41 @@ public abstract class MicroService implements Runnable {
 
 
 
+    /**
+     * Declares how much work this micro-service holds outside its mailbox, such
+     * as data it has yet to send or messages it is waiting to act on, in any unit
+     * it likes; 0 once it has none. While it is above 0 the message-bus does not
+     * consider itself quiescent, see {@link MessageBusImpl#setQuiescenceListener(Runnable)}.
+     * Pending work is dropped when the micro-service unregisters.
+     *
+     * @param units The work pending, replacing the previous declaration.
+     */
+    protected final void setPendingWork(long units) {
+        if (messageBus instanceof MessageBusImpl) {
+            ((MessageBusImpl) messageBus).setPendingWork(this, units);
+        }
+    }
+
+    /**
+     * Sets the coordinator this micro-service signals once initialized. Must be
+     * called before it starts.
+     */
+    public final void setStartupCoordinator(StartupCoordinator startupCoordinator) {
+        this.startupCoordinator = startupCoordinator;
+    }
+
+    // Signals the coordinator even if initialize failed, so the simulation does not wait for ever.
+    private void initializeAndSignal() {
+        try {
+            initialize();
+        } finally {
+            StartupCoordinator coordinator = startupCoordinator;
+            if (coordinator != null) {
+                coordinator.ready();
+            }
+        }
+    }
+
     /**
      * The entry point of the micro-service. TODO: you must complete this code
      * otherwise you will end up in an infinite loop.
@@ -159,15 +279,11 @@ public abstract class MicroService implements Runnable {
     @Override
     public final void run() {
         messageBus.register(this);
-        initialize();
+        initializeAndSignal();
         System.out.println(getName() + " started.");
         while (!terminated) {
             try {
-                Message message = messageBus.awaitMessage(this);
-                Callback<Message> callback = (Callback<Message>) callbackMap.get(message.getClass());
-                if (callback != null) {
-                    callback.call(message);
-                }
+                dispatch(messageBus.awaitMessage(this));
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -176,4 +292,133 @@ public abstract class MicroService implements Runnable {
         messageBus.unregister(this);
         System.out.println(getName() + " terminated.");
     }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(Message message) {
+        int id = MessageTypes.idOf(message.getClass());
+        Callback<?>[] callbacks = resolvedCallbacks;
+        Callback<Message> callback = id < callbacks.length ? (Callback<Message>) callbacks[id] : null;
+        if (callback == null) {
+            callback = (Callback<Message>) resolveCallback(message.getClass(), id);
+        }
+        if (message instanceof ScheduledMessage) {
+            recordLag((ScheduledMessage) message);
+        }
+        try {
+            callback.call(message);
+        } finally {
+            if (messageBus instanceof MessageBusImpl) {
+                ((MessageBusImpl) messageBus).messageDone(this);
+            }
+        }
+    }
+
+    private void recordLag(ScheduledMessage message) {
+        long scheduled = message.getScheduledNanos();
+        if (scheduled != ScheduledMessage.UNSCHEDULED && messageBus instanceof MessageBusImpl) {
+            ((MessageBusImpl) messageBus).recordDeliveryLag(this, System.nanoTime() - scheduled);
+        }
+    }
+
+    /**
+     * @return The callback of the most specific supertype of {@code type} this
+     *         micro-service subscribed to, or one ignoring the message if there is none.
+     */
+    private Callback<?> resolveCallback(Class<?> type, int id) {
+        Callback<?> callback = message -> { };
+        for (Class<? extends Message> supertype : MessageTypes.supertypes(type)) {
+            Callback<?> subscribed = callbackMap.get(supertype);
+            if (subscribed != null) {
+                callback = subscribed;
+                break;
+            }
+        }
+        if (id >= resolvedCallbacks.length) {
+            resolvedCallbacks = Arrays.copyOf(resolvedCallbacks, Math.max(resolvedCallbacks.length * 2, id + 1));
+        }
+        resolvedCallbacks[id] = callback;
+        return callback;
+    }
+
+    /**
+     * The entry point of the micro-service when it runs as an actor of
+     * {@code scheduler}: registers, initializes and handles the messages already
+     * queued. Later messages are handled by {@link #drain()}, scheduled by
+     * {@link #onMessageQueued()}.
+     */
+    final void startActor(ActorScheduler scheduler) {
+        this.actorScheduler = scheduler;
+        scheduled.set(true);
+        boolean initialized = false;
+        try {
+            messageBus.register(this);
+            initializeAndSignal();
+            initialized = true;
+        } finally {
+            if (!initialized) {
+                // The scheduler would otherwise wait for this actor for ever.
+                terminated = true;
+                messageBus.unregister(this);
+                scheduler.done();
+            }
+        }
+        System.out.println(getName() + " started.");
+        drain();
+    }
+
+    /**
+     * @return Whether this micro-service runs as an actor of an {@link ActorScheduler}.
+     */
+    final boolean isActor() {
+        return actorScheduler != null;
+    }
+
+    /**
+     * Called by the message-bus after it queued a message for this micro-service.
+     * Schedules the actor unless it is already scheduled or running.
+     */
+    final void onMessageQueued() {
+        ActorScheduler scheduler = actorScheduler;
+        if (scheduler != null && scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::drain);
+        }
+    }
+
+    // Runs only while scheduled is set, so never on two threads at once.
+    private void drain() {
+        MessageBusImpl bus = (MessageBusImpl) messageBus;
+        int handled = 0;
+        try {
+            while (!terminated && handled < actorScheduler.getBatchSize()) {
+                Message message = bus.pollMessage(this);
+                if (message == null) {
+                    break;
+                }
+                dispatch(message);
+                handled++;
+            }
+        } finally {
+            // Also after a callback threw, so the actor is not left scheduled for ever.
+            release(bus, handled);
+        }
+    }
+
+    private void release(MessageBusImpl bus, int handled) {
+        if (terminated) {
+            messageBus.unregister(this);
+            System.out.println(getName() + " terminated.");
+            actorScheduler.done();
+            return;
+        }
+        if (handled == actorScheduler.getBatchSize()) {
+            // Yield to the other actors and continue later.
+            actorScheduler.schedule(this::drain);
+            return;
+        }
+        scheduled.set(false);
+        // A message queued after the last poll may have found scheduled still set.
+        if (bus.hasMessages(this) && scheduled.compareAndSet(false, true)) {
+            actorScheduler.schedule(this::drain);
+        }
+    }
 }
@@ -0,0 +1,10 @@
+package bgu.spl.mics;
+
+/**
+ * A "Marker" interface extending {@link Event} for events whose sender never
+ * waits for a result. The message-bus does not create a {@link Future} for a
+ * one-way event, and {@link MessageBus#complete(Event, Object)} has no effect on it.
+ */
+public interface OneWayEvent<T> extends Event<T> {
+
+}
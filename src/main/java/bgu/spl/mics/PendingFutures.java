@@ -0,0 +1,68 @@
+package bgu.spl.mics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The futures of sent events that were not completed yet, keyed by their event.
+ * <p>
+ * Futures that are never completed expire after a timeout: they are kept in two
+ * generations, and every timeout period the older generation is resolved with
+ * null and dropped while the current one becomes the older one. An uncompleted
+ * future therefore lives between one and two timeout periods. Expiry needs no
+ * timestamp per future and no background thread - the rotation is triggered by
+ * {@link #put(Event, Future)}.
+ */
+class PendingFutures {
+
+    private volatile ConcurrentHashMap<Event<?>, Future<?>> current;
+    private volatile ConcurrentHashMap<Event<?>, Future<?>> previous;
+    private volatile long timeoutNanos;
+    private final AtomicLong nextRotation;
+    private final AtomicLong expired;
+
+    PendingFutures() {
+        this.current = new ConcurrentHashMap<>();
+        this.previous = new ConcurrentHashMap<>();
+        this.timeoutNanos = 0;
+        this.nextRotation = new AtomicLong(Long.MAX_VALUE);
+        this.expired = new AtomicLong(0);
+    }
+
+    /**
+     * @param timeout The time after which an uncompleted future expires, 0 to never expire futures.
+     */
+    void setTimeout(long timeout, TimeUnit unit) {
+        timeoutNanos = unit.toNanos(timeout);
+        nextRotation.set(timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : Long.MAX_VALUE);
+    }
+
+    void put(Event<?> e, Future<?> future) {
+        current.put(e, future);
+        long rotation = nextRotation.get();
+        if (rotation != Long.MAX_VALUE && System.nanoTime() - rotation >= 0
+                && nextRotation.compareAndSet(rotation, System.nanoTime() + timeoutNanos)) {
+            rotate();
+        }
+    }
+
+    Future<?> remove(Event<?> e) {
+        Future<?> future = current.remove(e);
+        return future != null ? future : previous.remove(e);
+    }
+
+    long getExpired() {
+        return expired.get();
+    }
+
+    private void rotate() {
+        ConcurrentHashMap<Event<?>, Future<?>> oldest = previous;
+        previous = current;
+        current = new ConcurrentHashMap<>();
+        for (Future<?> future : oldest.values()) {
+            future.resolve(null);
+            expired.incrementAndGet();
+        }
+    }
+}
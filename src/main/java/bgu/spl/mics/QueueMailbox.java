@@ -0,0 +1,237 @@
+package bgu.spl.mics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Mailbox} backed by two array deques guarded by a single lock,
+ * optionally bounded. The second deque is the control lane, used only when
+ * priority lanes are enabled; the capacity bounds the data lane alone.
+ * <p>
+ * When coalescing is enabled, a {@link CoalescingMessage} offered while another
+ * message of its class is still queued is merged with it instead of queued twice.
+ */
+public class QueueMailbox implements Mailbox {
+
+    private final ArrayDeque<Message> controlLane;
+    private final ArrayDeque<Message> dataLane;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    private final boolean priorityLanes;
+    private final Map<Class<?>, Message> pendingCoalescing;
+    private volatile int highWaterMark;
+    private volatile Runnable coalescingListener;
+
+    /**
+     * Creates an unbounded mailbox.
+     */
+    public QueueMailbox() {
+        this(0, BackpressurePolicy.BLOCK, false);
+    }
+
+    /**
+     * @param capacity The maximal number of queued messages, 0 or less for an unbounded mailbox.
+     * @param policy   The policy applied when the mailbox is full.
+     */
+    public QueueMailbox(int capacity, BackpressurePolicy policy) {
+        this(capacity, policy, false);
+    }
+
+    /**
+     * @param capacity      The maximal number of queued data messages, 0 or less for an unbounded mailbox.
+     * @param policy        The policy applied when the mailbox is full.
+     * @param priorityLanes Whether {@link Lane#CONTROL} messages are taken before data messages.
+     */
+    public QueueMailbox(int capacity, BackpressurePolicy policy, boolean priorityLanes) {
+        this(capacity, policy, priorityLanes, false);
+    }
+
+    /**
+     * @param capacity      The maximal number of queued data messages, 0 or less for an unbounded mailbox.
+     * @param policy        The policy applied when the mailbox is full.
+     * @param priorityLanes Whether {@link Lane#CONTROL} messages are taken before data messages.
+     * @param coalesce      Whether queued {@link CoalescingMessage}s of one class are merged.
+     */
+    public QueueMailbox(int capacity, BackpressurePolicy policy, boolean priorityLanes, boolean coalesce) {
+        this.capacity = Math.max(capacity, 0);
+        this.policy = policy;
+        this.priorityLanes = priorityLanes;
+        this.controlLane = new ArrayDeque<>();
+        this.dataLane = new ArrayDeque<>();
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+        this.pendingCoalescing = coalesce ? new HashMap<>() : null;
+        this.highWaterMark = 0;
+        this.coalescingListener = () -> { };
+    }
+
+    @Override
+    public Message offer(Message message) {
+        lock.lock();
+        try {
+            return enqueue(message);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds all of {@code messages} under a single acquisition of the lock.
+     */
+    @Override
+    public List<Message> offerAll(List<? extends Message> messages) {
+        List<Message> discarded = null;
+        lock.lock();
+        try {
+            for (Message message : messages) {
+                Message refused = enqueue(message);
+                if (refused != null) {
+                    if (discarded == null) {
+                        discarded = new ArrayList<>();
+                    }
+                    discarded.add(refused);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return discarded == null ? Collections.emptyList() : discarded;
+    }
+
+    // Called with the lock held.
+    private Message enqueue(Message message) {
+        Message discarded = null;
+        if (priorityLanes && message.getLane() == Lane.CONTROL) {
+            controlLane.add(message);
+        } else if (pendingCoalescing != null && message instanceof CoalescingMessage
+                && pendingCoalescing.containsKey(message.getClass())) {
+            Message merged = merge(pendingCoalescing.get(message.getClass()), message);
+            pendingCoalescing.put(message.getClass(), merged);
+            dataLane.add(merged);
+            coalescingListener.run();
+        } else {
+            if (capacity > 0 && dataLane.size() >= capacity) {
+                switch (policy) {
+                    case BLOCK:
+                        while (dataLane.size() >= capacity) {
+                            try {
+                                notFull.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return message;
+                            }
+                        }
+                        break;
+                    case DROP_OLDEST:
+                        discarded = dataLane.poll();
+                        forgetCoalescing(discarded);
+                        break;
+                    default:
+                        return message;
+                }
+            }
+            dataLane.add(message);
+            if (pendingCoalescing != null && message instanceof CoalescingMessage) {
+                pendingCoalescing.put(message.getClass(), message);
+            }
+        }
+        notEmpty.signal();
+        int size = controlLane.size() + dataLane.size();
+        if (size > highWaterMark) {
+            highWaterMark = size;
+        }
+        return discarded;
+    }
+
+    // Called with the lock held. Removes the queued message from the data lane,
+    // which keeps the lane within its capacity.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Message merge(Message queued, Message newer) {
+        dataLane.removeLastOccurrence(queued);
+        return (Message) ((CoalescingMessage) queued).coalesce((CoalescingMessage) newer);
+    }
+
+    // Called with the lock held, for a message leaving the data lane.
+    private void forgetCoalescing(Message message) {
+        if (pendingCoalescing != null && message instanceof CoalescingMessage) {
+            pendingCoalescing.remove(message.getClass(), message);
+        }
+    }
+
+    // Called with the lock held.
+    private Message dequeue() {
+        Message message = controlLane.poll();
+        if (message == null) {
+            message = dataLane.poll();
+            if (message != null) {
+                forgetCoalescing(message);
+                notFull.signal();
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public void setCoalescingListener(Runnable listener) {
+        this.coalescingListener = listener;
+    }
+
+    @Override
+    public Message take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Message message;
+            while ((message = dequeue()) == null) {
+                notEmpty.await();
+            }
+            return message;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Message poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return controlLane.size() + dataLane.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+}
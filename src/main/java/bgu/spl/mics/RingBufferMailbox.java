@@ -0,0 +1,280 @@
+package bgu.spl.mics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Mailbox} backed by a preallocated array used as a bounded
+ * multi-producer/single-consumer ring buffer. Senders claim a slot with a single
+ * CAS and never allocate; the owner waits for messages according to its
+ * {@link WaitStrategy}.
+ * <p>
+ * Each slot carries a sequence number that tells whether it is free for the
+ * sender at position {@code pos} (sequence == pos) or holds the message
+ * published at {@code pos} (sequence == pos + 1).
+ * <p>
+ * Under {@link BackpressurePolicy#DROP_OLDEST} senders, batch senders included,
+ * are serialized so that each of them evicts at most one message and publishes
+ * into the slot it freed; the other policies are lock-free.
+ * <p>
+ * With priority lanes enabled, {@link Lane#CONTROL} messages bypass the ring
+ * through an unbounded lock-free queue that the owner drains first.
+ */
+public class RingBufferMailbox implements Mailbox {
+
+    private static final int SPIN_TRIES = 1000;
+    private static final long SENDER_BACKOFF_NANOS = 1000;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Message> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail;
+    private final AtomicLong head;
+    private final BackpressurePolicy policy;
+    private final WaitStrategy waitStrategy;
+    private final AtomicInteger highWaterMark;
+    private final ConcurrentLinkedQueue<Message> controlLane;
+    private volatile Thread waiter;
+
+    /**
+     * @param capacity     The number of slots, rounded up to a power of two.
+     * @param policy       The policy applied when the mailbox is full.
+     * @param waitStrategy How the owner waits when the mailbox is empty.
+     */
+    public RingBufferMailbox(int capacity, BackpressurePolicy policy, WaitStrategy waitStrategy) {
+        this(capacity, policy, waitStrategy, false);
+    }
+
+    /**
+     * @param capacity      The number of slots for data messages, rounded up to a power of two.
+     * @param policy        The policy applied when the mailbox is full.
+     * @param waitStrategy  How the owner waits when the mailbox is empty.
+     * @param priorityLanes Whether {@link Lane#CONTROL} messages are taken before data messages.
+     */
+    public RingBufferMailbox(int capacity, BackpressurePolicy policy, WaitStrategy waitStrategy, boolean priorityLanes) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("A ring buffer mailbox must be bounded.");
+        }
+        this.capacity = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLong(0);
+        this.head = new AtomicLong(0);
+        this.policy = policy;
+        this.waitStrategy = waitStrategy;
+        this.highWaterMark = new AtomicInteger(0);
+        this.controlLane = priorityLanes ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+    @Override
+    public Message offer(Message message) {
+        Message discarded = null;
+        if (controlLane != null && message.getLane() == Lane.CONTROL) {
+            controlLane.add(message);
+            Thread owner = waiter;
+            if (owner != null) {
+                LockSupport.unpark(owner);
+            }
+            recordSize();
+            return null;
+        }
+        switch (policy) {
+            case BLOCK:
+                while (!tryPublish(message)) {
+                    LockSupport.parkNanos(this, SENDER_BACKOFF_NANOS);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return message;
+                    }
+                }
+                break;
+            case DROP_OLDEST:
+                synchronized (this) {
+                    // No other sender publishes meanwhile, so the owner only frees slots: this loops
+                    // again only while the owner, taking at the same time, has yet to free one.
+                    while (!tryPublish(message)) {
+                        discarded = pollData();
+                    }
+                }
+                break;
+            default:
+                if (!tryPublish(message)) {
+                    return message;
+                }
+        }
+        recordSize();
+        return discarded;
+    }
+
+    private void recordSize() {
+        int size = size();
+        if (size > highWaterMark.get()) {
+            highWaterMark.accumulateAndGet(size, Math::max);
+        }
+    }
+
+    /**
+     * Claims room for the whole list with a single CAS when the buffer has it;
+     * falls back to adding the messages one by one otherwise, and always under
+     * DROP_OLDEST, whose senders are serialized.
+     */
+    @Override
+    public List<Message> offerAll(List<? extends Message> messages) {
+        int count = messages.size();
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        if (policy == BackpressurePolicy.DROP_OLDEST) {
+            return Mailbox.super.offerAll(messages);
+        }
+        if (controlLane != null) {
+            for (Message message : messages) {
+                if (message.getLane() == Lane.CONTROL) {
+                    return Mailbox.super.offerAll(messages);
+                }
+            }
+        }
+        while (count <= capacity) {
+            long pos = tail.get();
+            long last = pos + count - 1;
+            // Slots are freed in order, so if the last one is free all of them are.
+            if (sequences.get((int) last & mask) != last) {
+                break;
+            }
+            if (tail.compareAndSet(pos, pos + count)) {
+                for (int i = 0; i < count; i++) {
+                    int index = (int) (pos + i) & mask;
+                    buffer.set(index, messages.get(i));
+                    sequences.set(index, pos + i + 1);
+                }
+                Thread owner = waiter;
+                if (owner != null) {
+                    LockSupport.unpark(owner);
+                }
+                recordSize();
+                return Collections.emptyList();
+            }
+        }
+        return Mailbox.super.offerAll(messages);
+    }
+
+    private boolean tryPublish(Message message) {
+        while (true) {
+            long pos = tail.get();
+            int index = (int) pos & mask;
+            long difference = sequences.get(index) - pos;
+            if (difference == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.set(index, message);
+                    // A volatile write, so it cannot be reordered with the read of waiter below.
+                    sequences.set(index, pos + 1);
+                    Thread owner = waiter;
+                    if (owner != null) {
+                        LockSupport.unpark(owner);
+                    }
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public Message poll() {
+        if (controlLane != null) {
+            Message message = controlLane.poll();
+            if (message != null) {
+                return message;
+            }
+        }
+        return pollData();
+    }
+
+    private Message pollData() {
+        while (true) {
+            long pos = head.get();
+            int index = (int) pos & mask;
+            long difference = sequences.get(index) - (pos + 1);
+            if (difference == 0) {
+                // The owner competes only with senders evicting under DROP_OLDEST.
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Message message = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    sequences.set(index, pos + capacity);
+                    return message;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public Message take() throws InterruptedException {
+        Message message = poll();
+        if (message != null) {
+            return message;
+        }
+        if (waitStrategy == WaitStrategy.YIELDING) {
+            while ((message = poll()) == null) {
+                Thread.yield();
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return message;
+        }
+        if (waitStrategy == WaitStrategy.SPIN_THEN_PARK) {
+            for (int i = 0; i < SPIN_TRIES; i++) {
+                message = poll();
+                if (message != null) {
+                    return message;
+                }
+            }
+        }
+        waiter = Thread.currentThread();
+        try {
+            while ((message = poll()) == null) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return message;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = (int) Math.max(tail.get() - head.get(), 0);
+        return controlLane == null || controlLane.isEmpty() ? size : size + controlLane.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+}
@@ -0,0 +1,25 @@
+package bgu.spl.mics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Routes events to each subscriber in turn.
+ */
+final class RoundRobinRouter implements Router {
+
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    @Override
+    public int route(Event<?> event, MicroService[] subscribers, ToIntFunction<MicroService> queueDepth) {
+        return Math.floorMod(cursor.getAndIncrement(), subscribers.length);
+    }
+
+    /**
+     * Advances the cursor past {@code count} events at once.
+     * @return The cursor position of the first of them.
+     */
+    int advance(int count) {
+        return cursor.getAndAdd(count);
+    }
+}
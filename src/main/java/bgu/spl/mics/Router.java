@@ -0,0 +1,19 @@
+package bgu.spl.mics;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Chooses which subscriber of an event type receives each event. The
+ * {@link MessageBusImpl} keeps one router per event type; see {@link RoutingStrategy}.
+ */
+public interface Router {
+
+    /**
+     * @param event       The event to deliver.
+     * @param subscribers The current subscribers of the event type, never empty.
+     *                    The array is replaced, never modified, when they change.
+     * @param queueDepth  The number of messages queued for a subscriber.
+     * @return The index in {@code subscribers} of the receiver.
+     */
+    int route(Event<?> event, MicroService[] subscribers, ToIntFunction<MicroService> queueDepth);
+}
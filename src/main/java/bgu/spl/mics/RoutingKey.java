@@ -0,0 +1,14 @@
+package bgu.spl.mics;
+
+/**
+ * An event that names the state it works on, such as an object id. Under
+ * {@link RoutingStrategy#KEY_AFFINITY}, events with equal keys go to the same
+ * subscriber as long as the subscribers do not change.
+ */
+public interface RoutingKey {
+
+    /**
+     * @return The affinity key of this event, or null to route it round-robin.
+     */
+    Object getRoutingKey();
+}
@@ -0,0 +1,45 @@
+package bgu.spl.mics;
+
+/**
+ * The ways {@link MessageBusImpl} can route the events of one type among its
+ * subscribers, selected with {@link MessageBusImpl#setRouting(Class, RoutingStrategy)}.
+ */
+public enum RoutingStrategy {
+
+    /**
+     * Each subscriber in turn.
+     */
+    ROUND_ROBIN {
+        @Override
+        public Router create() {
+            return new RoundRobinRouter();
+        }
+    },
+
+    /**
+     * The subscriber with the fewest queued messages; ties are taken in turn.
+     */
+    LEAST_LOADED {
+        @Override
+        public Router create() {
+            return new LeastLoadedRouter();
+        }
+    },
+
+    /**
+     * Consistent hashing on {@link RoutingKey#getRoutingKey()}, so per-key state
+     * stays in one subscriber; when a subscriber leaves, only its keys move.
+     * Events without a key are routed round-robin.
+     */
+    KEY_AFFINITY {
+        @Override
+        public Router create() {
+            return new KeyAffinityRouter();
+        }
+    };
+
+    /**
+     * @return A new router for one event type.
+     */
+    public abstract Router create();
+}
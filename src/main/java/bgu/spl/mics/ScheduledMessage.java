@@ -0,0 +1,20 @@
+package bgu.spl.mics;
+
+/**
+ * A message due at a given time. The delay between that time and the moment its
+ * receiver starts handling it is recorded by the message-bus, per receiver, see
+ * {@link MessageBusImpl#getDeliveryLags()}.
+ */
+public interface ScheduledMessage extends Message {
+
+    /**
+     * The {@link #getScheduledNanos()} of a message that is not due at any given time.
+     */
+    long UNSCHEDULED = Long.MIN_VALUE;
+
+    /**
+     * @return The {@link System#nanoTime()} at which this message was due, or
+     *         {@link #UNSCHEDULED} if it was not.
+     */
+    long getScheduledNanos();
+}
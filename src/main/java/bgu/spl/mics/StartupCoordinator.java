@@ -0,0 +1,78 @@
+package bgu.spl.mics;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets a simulation start its clock only once all of its micro-services are
+ * ready. Every micro-service given the coordinator through
+ * {@link MicroService#setStartupCoordinator(StartupCoordinator)} signals it
+ * when its {@link MicroService#initialize()} is done, that is once it has
+ * registered and subscribed; {@link #awaitReady()} returns after the last one
+ * did, so no message sent from then on is lost for a service still starting.
+ */
+public final class StartupCoordinator {
+
+    private static final long NOT_YET = -1;
+
+    private final long createdNanos;
+    private final CountDownLatch pending;
+    private final AtomicLong readyNanos;
+    private final AtomicLong firstTickNanos;
+
+    /**
+     * @param services The number of micro-services to wait for.
+     */
+    public StartupCoordinator(int services) {
+        this.createdNanos = System.nanoTime();
+        this.pending = new CountDownLatch(services);
+        this.readyNanos = new AtomicLong(NOT_YET);
+        this.firstTickNanos = new AtomicLong(NOT_YET);
+        if (services == 0) {
+            readyNanos.set(0);
+        }
+    }
+
+    /**
+     * Called by a micro-service once it is initialized, or failed to be.
+     */
+    void ready() {
+        pending.countDown();
+        if (pending.getCount() == 0) {
+            readyNanos.compareAndSet(NOT_YET, System.nanoTime() - createdNanos);
+        }
+    }
+
+    /**
+     * Waits until every micro-service is ready.
+     */
+    public void awaitReady() throws InterruptedException {
+        pending.await();
+    }
+
+    /**
+     * Called by the clock of the simulation as it sends its first tick; later calls are ignored.
+     */
+    public void firstTickSent() {
+        firstTickNanos.compareAndSet(NOT_YET, System.nanoTime() - createdNanos);
+    }
+
+    /**
+     * @return The time from the creation of this coordinator until the last
+     *         micro-service was ready, -1 if one is not yet.
+     */
+    public long getTimeToReady(TimeUnit unit) {
+        long nanos = readyNanos.get();
+        return nanos == NOT_YET ? NOT_YET : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The time from the creation of this coordinator until the first
+     *         tick was sent, -1 if it was not yet.
+     */
+    public long getTimeToFirstTick(TimeUnit unit) {
+        long nanos = firstTickNanos.get();
+        return nanos == NOT_YET ? NOT_YET : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+}
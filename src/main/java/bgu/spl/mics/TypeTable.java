@@ -0,0 +1,43 @@
+package bgu.spl.mics;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * A table indexed by the dense id {@link MessageTypes#idOf(Class)} assigns to
+ * each message class, so that a lookup on the hot path is an array load.
+ * Reads take no lock; entries are added under the table's lock to a copy of the
+ * array, published by replacing the array reference, so an array a reader holds
+ * is never written to.
+ */
+final class TypeTable<V> {
+
+    private volatile Object[] values = new Object[16];
+
+    /**
+     * @return The value of the class with id {@code id}, or null if it has none yet.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int id) {
+        Object[] snapshot = values;
+        return id < snapshot.length ? (V) snapshot[id] : null;
+    }
+
+    /**
+     * @return The value of the class with id {@code id}, created by {@code factory}
+     *         if it has none yet; {@code factory} is called at most once per id.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized V computeIfAbsent(int id, Supplier<? extends V> factory) {
+        Object[] snapshot = values;
+        if (id < snapshot.length && snapshot[id] != null) {
+            return (V) snapshot[id];
+        }
+        V value = factory.get();
+        Object[] updated = Arrays.copyOf(snapshot, id < snapshot.length ? snapshot.length : Math.max(snapshot.length * 2, id + 1));
+        updated[id] = value;
+        // A volatile write, so readers of the reference see the new entry.
+        values = updated;
+        return value;
+    }
+}
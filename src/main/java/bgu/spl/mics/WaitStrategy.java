@@ -0,0 +1,25 @@
+package bgu.spl.mics;
+
+/**
+ * How the owner of a {@link RingBufferMailbox} waits for a message when its
+ * mailbox is empty.
+ */
+public enum WaitStrategy {
+
+    /**
+     * Park the thread immediately; senders unpark it. Lowest CPU use.
+     */
+    BLOCKING,
+
+    /**
+     * Busy-spin for a short while before parking. Lower latency for services
+     * that receive messages in bursts.
+     */
+    SPIN_THEN_PARK,
+
+    /**
+     * Yield the processor between checks and never park. Lowest latency, but
+     * keeps a core busy while idle.
+     */
+    YIELDING
+}
@@ -0,0 +1,271 @@
+package bgu.spl.mics.application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import bgu.spl.mics.application.objects.StatisticalFolder;
+
+/**
+ * Runs many simulations in one JVM, each in a {@link SimulationContext} of its
+ * own, at most a given number at a time. Every run writes the output_file.json
+ * next to its configuration; once all are done a summary table of the runs is
+ * printed.
+ * <p>
+ * What a run prints, on its own threads or those it starts, is held back and
+ * printed in one block once the run is done, so runs going at the same time do
+ * not interleave their output, nor with the summary.
+ * <p>
+ * Usage: {@value #USAGE}.
+ * A directory stands for every file named {@value #CONFIGURATION_FILE_NAME} under
+ * it. Without --parallelism as many runs as available processors go at a time.
+ */
+public class BatchRunner {
+
+    private static final String CONFIGURATION_FILE_NAME = "configuration_file.json";
+    private static final String USAGE = "BatchRunner [--parallelism N] <directory or configuration file>...";
+
+    /**
+     * Sends the bytes printed by a thread to the output of the run it belongs to,
+     * which the threads a run starts inherit, or to the console outside of any run.
+     */
+    private static final class RunOutput extends OutputStream {
+        private final PrintStream console;
+        private final InheritableThreadLocal<ByteArrayOutputStream> current = new InheritableThreadLocal<>();
+
+        private RunOutput(PrintStream console) {
+            this.console = console;
+        }
+
+        private OutputStream target() {
+            ByteArrayOutputStream run = current.get();
+            return run != null ? run : console;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+
+        /**
+         * Prints the output of the run of {@code configPath} as one block.
+         */
+        private void print(String configPath, ByteArrayOutputStream run) {
+            synchronized (console) {
+                console.println("==> " + configPath + " <==");
+                console.write(run.toByteArray(), 0, run.size());
+                console.flush();
+            }
+        }
+    }
+
+    /**
+     * The outcome of a single run.
+     */
+    public static class Result {
+        private final String configPath;
+        private final long wallClockMillis;
+        private final int ticks;
+        private final int landmarks;
+        private final String error;
+
+        private Result(String configPath, long wallClockMillis, int ticks, int landmarks, String error) {
+            this.configPath = configPath;
+            this.wallClockMillis = wallClockMillis;
+            this.ticks = ticks;
+            this.landmarks = landmarks;
+            this.error = error;
+        }
+
+        public String getConfigPath() {
+            return configPath;
+        }
+
+        public long getWallClockMillis() {
+            return wallClockMillis;
+        }
+
+        public int getTicks() {
+            return ticks;
+        }
+
+        public int getLandmarks() {
+            return landmarks;
+        }
+
+        /**
+         * @return The reason the run failed, null if it completed.
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        List<String> configPaths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--parallelism")) {
+                parallelism = i + 1 < args.length ? parsePositive(args[++i]) : -1;
+                if (parallelism <= 0) {
+                    System.err.println("--parallelism needs a positive number.");
+                    System.err.println("Usage: " + USAGE);
+                    return;
+                }
+            } else {
+                configPaths.addAll(findConfigurations(Paths.get(args[i])));
+            }
+        }
+        if (configPaths.isEmpty()) {
+            System.out.println("NO Config file :(");
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = run(configPaths, parallelism);
+        long total = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        printSummary(results);
+        System.out.println(results.size() + " runs completed in " + total + " ms, at most " + parallelism + " at a time.");
+    }
+
+    // -1 unless value is a positive number.
+    private static int parsePositive(String value) {
+        try {
+            return Math.max(Integer.parseInt(value), -1);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs the simulations of {@code configPaths}, at most {@code parallelism} at a
+     * time. While they run, System.out and System.err are replaced for the whole
+     * JVM by a stream holding back what each run prints; anything else printing
+     * meanwhile goes through it straight to the console. A thread a run leaves
+     * running keeps printing into the run's buffer after its block was printed,
+     * and that output is lost.
+     *
+     * @return The result of each run, in the order of {@code configPaths}; empty,
+     *         without touching System.out and System.err, if there are none.
+     * @throws IllegalArgumentException if {@code parallelism} is not positive.
+     */
+    public static List<Result> run(List<String> configPaths, int parallelism) throws InterruptedException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (configPaths.isEmpty()) {
+            return new ArrayList<>();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, configPaths.size()));
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        RunOutput output = new RunOutput(out);
+        PrintStream routed = new PrintStream(output, true);
+        System.setOut(routed);
+        System.setErr(routed);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (String configPath : configPaths) {
+                futures.add(executor.submit(() -> runOne(configPath, output)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // runOne reports its own failures; anything else is a bug.
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+
+    private static Result runOne(String configPath, RunOutput output) {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        output.current.set(printed);
+        try {
+            return runOne(configPath);
+        } finally {
+            output.current.remove();
+            output.print(configPath, printed);
+        }
+    }
+
+    private static Result runOne(String configPath) {
+        long start = System.nanoTime();
+        if (!Files.isRegularFile(Paths.get(configPath))) {
+            return new Result(configPath, 0, 0, 0, "No such configuration file");
+        }
+        try {
+            SimulationContext context = new SimulationContext(configPath);
+            context.run();
+            StatisticalFolder stats = context.getStatisticalFolder();
+            return new Result(configPath, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                stats.getSystemRuntime(), stats.getNumLandmarks(), null);
+        } catch (Exception e) {
+            return new Result(configPath, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                0, 0, e.toString());
+        }
+    }
+
+    private static List<String> findConfigurations(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            List<String> single = new ArrayList<>();
+            single.add(path.toString());
+            return single;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(file -> file.getFileName().toString().equals(CONFIGURATION_FILE_NAME))
+                .map(Path::toString)
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static void printSummary(List<Result> results) {
+        int width = "Configuration".length();
+        for (Result result : results) {
+            width = Math.max(width, result.getConfigPath().length());
+        }
+        String row = "%-" + width + "s  %10s  %6s  %9s%n";
+        System.out.printf(row, "Configuration", "Wall ms", "Ticks", "Landmarks");
+        for (Result result : results) {
+            if (result.getError() != null) {
+                System.out.printf("%-" + width + "s  %10d  FAILED: %s%n",
+                    result.getConfigPath(), result.getWallClockMillis(), result.getError());
+            } else {
+                System.out.printf(row, result.getConfigPath(), result.getWallClockMillis(),
+                    result.getTicks(), result.getLandmarks());
+            }
+        }
+    }
+}
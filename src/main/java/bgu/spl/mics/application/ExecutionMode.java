@@ -0,0 +1,93 @@
+package bgu.spl.mics.application;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import bgu.spl.mics.ActorScheduler;
+
+/**
+ * How the runner executes its MicroServices, selected by the "ExecutionMode"
+ * field of the configuration file.
+ */
+public enum ExecutionMode {
+
+    /**
+     * One platform thread per service, from a fixed thread pool.
+     */
+    PLATFORM,
+
+    /**
+     * One virtual thread per service. Requires a Java 21 runtime; the lookup is
+     * reflective so the project still builds for Java 8.
+     * <p>
+     * A service blocks only on {@code java.util.concurrent} locks, conditions and
+     * latches, in its mailbox, in {@link bgu.spl.mics.Future} and while waiting for
+     * in-flight messages, so a waiting virtual thread releases its carrier. Short
+     * {@code synchronized} sections remain, such as the route updates and lag
+     * histograms of the bus; before Java 24 they pin the carrier while held, though
+     * never while waiting.
+     */
+    VIRTUAL,
+
+    /**
+     * Services are actors scheduled on a work-stealing pool with one thread per
+     * core, running only while they have messages. See {@link ActorScheduler}.
+     */
+    ACTOR;
+
+    /**
+     * The number of messages an actor handles before yielding, unless configured.
+     */
+    public static final int DEFAULT_ACTOR_BATCH_SIZE = 64;
+
+    /**
+     * @return Whether the running JVM supports this mode.
+     */
+    public boolean isAvailable() {
+        return this != VIRTUAL || virtualThreadFactoryMethod() != null;
+    }
+
+    /**
+     * @param services The number of services that will run concurrently.
+     * @return An executor running each submitted service according to this mode.
+     * @throws UnsupportedOperationException if the running JVM does not support this mode.
+     */
+    public ExecutorService createExecutor(int services) {
+        return createExecutor(services, DEFAULT_ACTOR_BATCH_SIZE);
+    }
+
+    /**
+     * @param services       The number of services that will run concurrently.
+     * @param actorBatchSize The number of messages an actor handles before yielding,
+     *                       used only by {@link #ACTOR}.
+     * @return An executor running each submitted service according to this mode.
+     * @throws UnsupportedOperationException if the running JVM does not support this mode.
+     */
+    public ExecutorService createExecutor(int services, int actorBatchSize) {
+        if (this == PLATFORM) {
+            return Executors.newFixedThreadPool(services);
+        }
+        if (this == ACTOR) {
+            return new ActorScheduler(actorBatchSize);
+        }
+        Method factory = virtualThreadFactoryMethod();
+        if (factory == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21, running on " + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor.", e);
+        }
+    }
+
+    private static Method virtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package bgu.spl.mics.application;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.StartupCoordinator;
+import bgu.spl.mics.application.objects.Camera;
+import bgu.spl.mics.application.objects.FusionSlam;
+import bgu.spl.mics.application.objects.GPSIMU;
+import bgu.spl.mics.application.objects.LiDarDataBase;
+import bgu.spl.mics.application.objects.LiDarWorkerTracker;
+import bgu.spl.mics.application.objects.StampedDetectedObjects;
+import bgu.spl.mics.application.objects.StatisticalFolder;
+import bgu.spl.mics.application.parser.ChunkedJsonParser;
+import bgu.spl.mics.application.parser.Configurations;
+import bgu.spl.mics.application.parser.JsonParser;
+import bgu.spl.mics.application.messages.broadcast.TerminatedBroadcast;
+import bgu.spl.mics.application.parser.JsonExporter;
+import bgu.spl.mics.application.services.CameraService;
+import bgu.spl.mics.application.services.FusionSlamService;
+import bgu.spl.mics.application.services.LiDarService;
+import bgu.spl.mics.application.services.PoseService;
+import bgu.spl.mics.application.services.TimeService;
+
+/**
+ * Everything a single simulation runs on: its configuration, message bus,
+ * statistics, LiDAR database, map and sensors. Services built from a context
+ * touch nothing outside it, so several simulations can run side by side in the
+ * same JVM, each writing the output_file.json next to its own configuration.
+ * <p>
+ * {@link #shared()} is the context of the singletons, used by the services
+ * built without one; its getters look the singletons up on every call, so they
+ * may be initialized after the services are created.
+ */
+public class SimulationContext {
+
+    private static final SimulationContext SHARED = new SimulationContext();
+
+    private final boolean shared;
+    private final JsonParser parser;
+    private final MessageBusImpl messageBus;
+    private final StatisticalFolder stats;
+    private final LiDarDataBase liDarDataBase;
+    private final FusionSlam fusionSlam;
+    private final List<Camera> cameras;
+    private final List<LiDarWorkerTracker> lidarWorkers;
+    private final GPSIMU gpsimu;
+    private volatile StartupCoordinator startupCoordinator;
+    private volatile boolean endedOnQuiescence;
+
+    private SimulationContext() {
+        this.shared = true;
+        this.parser = null;
+        this.messageBus = null;
+        this.stats = null;
+        this.liDarDataBase = null;
+        this.fusionSlam = null;
+        this.cameras = null;
+        this.lidarWorkers = null;
+        this.gpsimu = null;
+    }
+
+    /**
+     * Parses the configuration at {@code configPath}, configures a bus of its own
+     * from it and loads the sensor data. The camera data, the poses and the LiDAR
+     * database load at the same time, each split into chunks parsed in parallel;
+     * the time and throughput of every file are printed.
+     *
+     * @throws FileNotFoundException if a data file the configuration names does not exist.
+     */
+    public SimulationContext(String configPath) throws FileNotFoundException {
+        this.shared = false;
+        this.parser = new JsonParser(configPath);
+        Configurations config = parser.getConfig();
+        this.messageBus = new MessageBusImpl();
+        messageBus.setMailboxFactory(parser.getMailboxFactory());
+        messageBus.setBroadcastLog(parser.isBroadcastLog());
+        parser.getRouting().forEach(messageBus::setRouting);
+        messageBus.setFutureTimeout(config.getFutureTimeout(), TimeUnit.MILLISECONDS);
+        messageBus.setInFlightTracking(config.getTickMode().needsInFlightTracking() || config.isEndOnQuiescence());
+
+        this.stats = new StatisticalFolder();
+        this.lidarWorkers = parser.getLidarWorkers(stats);
+
+        // The files load on threads of their own, their chunks on a pool sized to the processors
+        ExecutorService files = Executors.newFixedThreadPool(3);
+        ExecutorService chunks = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            ChunkedJsonParser chunkedParser = new ChunkedJsonParser(chunks, ChunkedJsonParser.DEFAULT_CHUNK_BYTES);
+            Future<List<Camera>> loadedCameras = files.submit(() ->
+                timedLoad("Camera data", parser.getCameraDataPath(), () -> parser.getCameras(stats, chunkedParser)));
+            Future<GPSIMU> loadedPoses = files.submit(() ->
+                timedLoad("Poses", parser.getPoseDataPath(), () -> parser.getGPSIMU(chunkedParser)));
+            Future<LiDarDataBase> loadedDataBase = files.submit(() ->
+                timedLoad("LiDAR database", parser.getLidarDatabasePath(), () -> parser.getLiDarDataBase(chunkedParser)));
+            this.cameras = awaitLoad(loadedCameras);
+            this.gpsimu = awaitLoad(loadedPoses);
+            this.liDarDataBase = awaitLoad(loadedDataBase);
+        } finally {
+            files.shutdownNow();
+            chunks.shutdownNow();
+        }
+
+        int numOfSensors = cameras.size() + lidarWorkers.size() + 1; //cameras + lidarWorkers + gpsimu
+        this.fusionSlam = new FusionSlam(numOfSensors, stats);
+    }
+
+    private static <T> T timedLoad(String what, String path, Callable<T> load) throws Exception {
+        long start = System.nanoTime();
+        T loaded = load.call();
+        long nanos = System.nanoTime() - start;
+        long bytes = Files.size(Paths.get(path));
+        System.out.printf("%s loaded from %s: %d bytes in %.1f ms (%.1f MB/s)%n", what, path, bytes,
+            nanos / 1e6, bytes / 1e6 / Math.max(nanos / 1e9, 1e-9));
+        return loaded;
+    }
+
+    private static <T> T awaitLoad(Future<T> load) throws FileNotFoundException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading the sensor data.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FileNotFoundException) {
+                throw (FileNotFoundException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * @return The context of the singletons.
+     */
+    public static SimulationContext shared() {
+        return SHARED;
+    }
+
+    public JsonParser getParser() {
+        return shared ? JsonParser.getInstance() : parser;
+    }
+
+    public MessageBusImpl getMessageBus() {
+        return shared ? MessageBusImpl.getInstance() : messageBus;
+    }
+
+    public StatisticalFolder getStatisticalFolder() {
+        return shared ? StatisticalFolder.getInstance() : stats;
+    }
+
+    public LiDarDataBase getLiDarDataBase() {
+        return shared ? LiDarDataBase.getInstance() : liDarDataBase;
+    }
+
+    public FusionSlam getFusionSlam() {
+        return shared ? FusionSlam.getInstance() : fusionSlam;
+    }
+
+    /**
+     * Computes the ticks the {@link TickMode#DISCRETE_EVENT} mode broadcasts: those
+     * at which a camera sends detections, a LiDAR worker releases the objects it
+     * tracked, the PoseService sends a pose, or a sensor shuts down, and each tick
+     * following a release, at which the FusionSlamService places the objects it
+     * could not place at once. The ticks in between only advance the time, which a
+     * TickBroadcast covering them does as well, as every service handles a range
+     * of ticks.
+     *
+     * @param duration The last tick of the simulation, always included.
+     * @return The ticks from 1 to {@code duration} to broadcast, in order.
+     * @throws IllegalStateException if called on the shared context.
+     */
+    public NavigableSet<Integer> getActiveTicks(int duration) {
+        if (shared) {
+            throw new IllegalStateException("The shared context has no sensor data.");
+        }
+        TreeSet<Integer> ticks = new TreeSet<>();
+        for (Camera camera : cameras) {
+            for (StampedDetectedObjects detection : camera.getDetectedObjectsList()) {
+                ticks.add(detection.getTime() + camera.getFrequency());
+                for (LiDarWorkerTracker worker : lidarWorkers) {
+                    ticks.add(detection.getTime() + worker.getFrequency());
+                    ticks.add(detection.getTime() + worker.getFrequency() + 1);
+                }
+            }
+            ticks.add(camera.getLastTick() + camera.getFrequency() + 1);
+        }
+        for (LiDarWorkerTracker worker : lidarWorkers) {
+            ticks.add(liDarDataBase.getLastTick() + worker.getFrequency() + 1);
+        }
+        // The PoseService sends the i-th pose at tick i.
+        for (int tick = 1; tick <= gpsimu.getPoseList().size(); tick++) {
+            ticks.add(tick);
+        }
+        ticks.add(gpsimu.getLastTick() + 1);
+        ticks.add(duration);
+        return new TreeSet<>(ticks.subSet(1, true, duration, true));
+    }
+
+    /**
+     * @return The coordinator of the current or last {@link #run()}, reporting how
+     *         long its services took to start; null before the first run and for
+     *         the shared context.
+     */
+    public StartupCoordinator getStartupCoordinator() {
+        return startupCoordinator;
+    }
+
+    /**
+     * @return The directory of the configuration file, where the output is written.
+     */
+    public String getOutputDir() {
+        return getParser().getDir();
+    }
+
+    /**
+     * Runs the simulation to its end: starts the services on the executor the
+     * configuration selects, starts the TimeService once all the others have
+     * subscribed, and waits for all of them to terminate. If the configuration
+     * asks to end on quiescence, the output is exported and every service told to
+     * terminate as soon as no message is in flight and no service holds pending
+     * work.
+     *
+     * @throws IllegalStateException if called on the shared context.
+     */
+    public void run() {
+        if (shared) {
+            throw new IllegalStateException("The shared context has no configuration to run.");
+        }
+        Configurations config = parser.getConfig();
+
+        // Create and initialize services
+        TimeService timeService = new TimeService(config.getTickTime(), config.getTickTimeUnit(), config.getDuration(),
+                config.getTickMode(), config.isEndOnQuiescence(), this);
+        FusionSlamService fusionSlamService = new FusionSlamService(this);
+        PoseService poseService = new PoseService(gpsimu, this);
+
+        List<MicroService> lidarServices = lidarWorkers.stream()
+                .map(worker -> new LiDarService(worker, this))
+                .collect(Collectors.toList());
+
+        List<MicroService> cameraServices = cameras.stream()
+                .map(camera -> new CameraService(camera, this))
+                .collect(Collectors.toList());
+
+        // Combine all services except TimeService
+        List<MicroService> allServices = new ArrayList<>();
+        allServices.addAll(lidarServices);
+        allServices.add(poseService);
+        allServices.add(fusionSlamService);
+        allServices.addAll(cameraServices);
+
+        // Initialize the executor: a thread pool, one virtual thread per service, or an actor pool
+        ExecutorService executorService = config.getExecutionMode().createExecutor(allServices.size() + 1, config.getActorBatchSize());
+
+        // Start all services except TimeService, each signaling once subscribed
+        StartupCoordinator coordinator = new StartupCoordinator(allServices.size());
+        this.startupCoordinator = coordinator;
+        allServices.forEach(service -> service.setStartupCoordinator(coordinator));
+        allServices.forEach(service -> executorService.execute(service));
+
+        // Start TimeService once every other service is ready for the first tick
+        try {
+            coordinator.awaitReady();
+            if (config.isEndOnQuiescence()) {
+                // Armed only now, as the services declare their pending work while initializing
+                messageBus.setQuiescenceListener(this::endOnQuiescence);
+            }
+            // Without any work to start with, the simulation ended before its first tick
+            if (!endedOnQuiescence) {
+                executorService.execute(timeService);
+            }
+        } catch (InterruptedException e) {
+            System.err.println("TimeService startup interrupted: " + e.getMessage());
+            Thread.currentThread().interrupt();
+        }
+
+        // Shut down the executor after all services finish
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(10, TimeUnit.MINUTES)) {
+                System.err.println("Executor did not terminate within the expected time.");
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+        }
+    }
+
+    // Run by the bus once no message sent on it is queued or being handled and no service declares
+    // pending work. It runs on the thread that made it so: a service finishing a callback, still inside
+    // its dispatch, clearing its pending work or unregistering; or this one, if the bus already was
+    // quiescent when armed. The TimeService is not tracked, so it may be sending a tick meanwhile.
+    private void endOnQuiescence() {
+        endedOnQuiescence = true;
+        System.out.println("No message in flight and no pending work; ending the simulation.");
+        if (fusionSlam.claimExport()) {
+            JsonExporter.exportStatistics(fusionSlam.getLandmarks(), stats, messageBus.getDeliveryLags(), getOutputDir());
+        }
+        messageBus.sendBroadcast(new TerminatedBroadcast(false));
+    }
+}
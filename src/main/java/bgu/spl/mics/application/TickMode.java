@@ -0,0 +1,38 @@
+package bgu.spl.mics.application;
+
+import bgu.spl.mics.MessageBusImpl;
+
+/**
+ * How the TimeService paces the ticks, selected by the "TickMode" field of the
+ * configuration file. Both modes produce the same output; only the time the
+ * simulation takes differs.
+ */
+public enum TickMode {
+
+    /**
+     * One tick every TickTime seconds of wall-clock time.
+     */
+    WALL_CLOCK,
+
+    /**
+     * The next tick as soon as every message the previous one caused, directly or
+     * through the messages sent while handling it, is handled. Tracks the messages
+     * in flight on the bus; see {@link MessageBusImpl#awaitQuiescence()}.
+     */
+    AS_FAST_AS_POSSIBLE,
+
+    /**
+     * As {@link #AS_FAST_AS_POSSIBLE}, but only the ticks at which some sensor has
+     * data to send or a service has work to do are broadcast; each TickBroadcast
+     * covers the ticks skipped since the previous one, which still count toward
+     * the runtime. See {@link SimulationContext#getActiveTicks(int)}.
+     */
+    DISCRETE_EVENT;
+
+    /**
+     * @return Whether the bus must track the messages in flight for this mode.
+     */
+    public boolean needsInFlightTracking() {
+        return this != WALL_CLOCK;
+    }
+}
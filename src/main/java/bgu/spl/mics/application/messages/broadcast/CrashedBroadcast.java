@@ -1,6 +1,7 @@
 package bgu.spl.mics.application.messages.broadcast;
 
 import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.Lane;
 
 /**
  * CrashedBroadcast is sent by sensors to notify other services of a crash.
@@ -37,4 +38,9 @@ public class CrashedBroadcast implements Broadcast {
     public String getError() {
         return error;
     }
+
+    @Override
+    public Lane getLane() {
+        return Lane.CONTROL;
+    }
 }
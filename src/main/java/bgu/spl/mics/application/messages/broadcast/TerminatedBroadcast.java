@@ -1,9 +1,12 @@
 package bgu.spl.mics.application.messages.broadcast;
 
 import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.Lane;
 
 /**
  * A broadcast message indicating that the system is terminating.
+ * A sensor's TerminatedBroadcast stays in the data lane, so that it is never
+ * taken before the data that sensor sent earlier.
  */
 public class TerminatedBroadcast implements Broadcast {
     private final boolean isSensor;
@@ -19,4 +22,9 @@ public class TerminatedBroadcast implements Broadcast {
     public boolean isSensor() {
         return this.isSensor;
     }
+
+    @Override
+    public Lane getLane() {
+        return isSensor ? Lane.DATA : Lane.CONTROL;
+    }
 }
\ No newline at end of file
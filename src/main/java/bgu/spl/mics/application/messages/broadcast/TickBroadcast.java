@@ -1,12 +1,20 @@
 package bgu.spl.mics.application.messages.broadcast;
 
 import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.CoalescingMessage;
+import bgu.spl.mics.ScheduledMessage;
 
 /**
  * A broadcast message that signals the current tick of the simulation.
+ * A tick broadcast may stand for several ticks, from {@link #getFromTick()} up to
+ * {@link #getTick()}, when ticks queued for a lagging service are coalesced.
+ * A tick paced by the wall clock carries the time it was due, so the delay with
+ * which each service receives it is measured.
  */
-public class TickBroadcast implements Broadcast {
+public class TickBroadcast implements Broadcast, CoalescingMessage<TickBroadcast>, ScheduledMessage {
+    private final int fromTick;
     private final int tick;
+    private final long scheduledNanos;
 
     /**
      * Constructor for TickBroadcast.
@@ -14,7 +22,37 @@ public class TickBroadcast implements Broadcast {
      * @param tick The current tick.
      */
     public TickBroadcast(int tick) {
+        this(tick, tick);
+    }
+
+    /**
+     * Constructor for a TickBroadcast that advances the time over several ticks.
+     *
+     * @param fromTick The first tick covered.
+     * @param tick     The current tick, the last one covered.
+     */
+    public TickBroadcast(int fromTick, int tick) {
+        this(fromTick, tick, UNSCHEDULED);
+    }
+
+    /**
+     * Constructor for a TickBroadcast due at a given time.
+     *
+     * @param fromTick       The first tick covered.
+     * @param tick           The current tick, the last one covered.
+     * @param scheduledNanos The {@link System#nanoTime()} at which the first tick covered was due.
+     */
+    public TickBroadcast(int fromTick, int tick, long scheduledNanos) {
+        this.fromTick = fromTick;
         this.tick = tick;
+        this.scheduledNanos = scheduledNanos;
+    }
+
+    /**
+     * @return The first tick this broadcast stands for.
+     */
+    public int getFromTick() {
+        return fromTick;
     }
 
     /**
@@ -23,4 +61,18 @@ public class TickBroadcast implements Broadcast {
     public int getTick() {
         return tick;
     }
+
+    @Override
+    public long getScheduledNanos() {
+        return scheduledNanos;
+    }
+
+    /**
+     * The merged broadcast keeps the time this one was due, so the delay of the
+     * service it was held back for is measured from the earliest tick it covers.
+     */
+    @Override
+    public TickBroadcast coalesce(TickBroadcast newer) {
+        return new TickBroadcast(fromTick, newer.tick, scheduledNanos);
+    }
 }
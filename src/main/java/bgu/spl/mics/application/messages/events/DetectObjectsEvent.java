@@ -2,13 +2,14 @@ package bgu.spl.mics.application.messages.events;
 
 import java.util.List;
 
-import  bgu.spl.mics.Event;
+import bgu.spl.mics.OneWayEvent;
+import bgu.spl.mics.RoutingKey;
 import bgu.spl.mics.application.objects.DetectedObject;
 
 /**
  * DetectObjectsEvent is sent by CameraService to LiDAR workers to process detected objects.
  */
-public class DetectObjectsEvent implements Event<List<DetectedObject>> {
+public class DetectObjectsEvent implements OneWayEvent<List<DetectedObject>>, RoutingKey {
     private final int time;
     private final int detectedTime;
     private final List<DetectedObject> detectedObjects;
@@ -38,4 +39,13 @@ public class DetectObjectsEvent implements Event<List<DetectedObject>> {
     public int getDetectedTime() {
         return detectedTime;
     }
+
+    /**
+     * @return The id of the first detected object, so that the same object keeps
+     *         going to the same LiDAR worker under key-affinity routing.
+     */
+    @Override
+    public Object getRoutingKey() {
+        return detectedObjects.isEmpty() ? null : detectedObjects.get(0).getId();
+    }
 }
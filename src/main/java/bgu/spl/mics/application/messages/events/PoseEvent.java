@@ -1,12 +1,12 @@
 package bgu.spl.mics.application.messages.events;
 
-import bgu.spl.mics.Event;
+import bgu.spl.mics.OneWayEvent;
 import bgu.spl.mics.application.objects.Pose;
 
 /**
  * PoseEvent is sent by PoseService to provide the robot's pose at a specific tick.
  */
-public class PoseEvent implements Event<Pose> {
+public class PoseEvent implements OneWayEvent<Pose> {
 
     private final Pose pose;
 
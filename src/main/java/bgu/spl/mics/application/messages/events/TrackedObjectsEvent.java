@@ -1,13 +1,13 @@
 package bgu.spl.mics.application.messages.events;
 
-import bgu.spl.mics.Event;
+import bgu.spl.mics.OneWayEvent;
 import bgu.spl.mics.application.objects.TrackedObject;
 import java.util.List;
 
 /**
  * TrackedObjectsEvent is sent by LiDarService to provide information about tracked objects.
  */
-public class TrackedObjectsEvent implements Event<List<TrackedObject>> {
+public class TrackedObjectsEvent implements OneWayEvent<List<TrackedObject>> {
 
     private final List<TrackedObject> trackedObjects;
 
@@ -14,7 +14,7 @@ public class Camera {
     private STATUS status;
     private final List<StampedDetectedObjects> detectedObjectsList;
     private int lastTick = 0;
-    private final StatisticalFolder stats = StatisticalFolder.getInstance();
+    private final StatisticalFolder stats;
     private StampedDetectedObjects lastStampedDetectedObjects;
     private String errorMessgae;
 
@@ -29,7 +29,18 @@ public class Camera {
      * @param detectedObjectsList The list of detected objects with timestamps.
      */
     public Camera(int id, int frequency, List<StampedDetectedObjects> detectedObjectsList, String cameraKey) {
+        this(id, frequency, detectedObjectsList, cameraKey, StatisticalFolder.getInstance());
+    }
+
+    /**
+     * Constructor for a camera counting its detections into {@code stats}.
+     *
+     * @param stats               The statistics of the simulation the camera belongs to.
+     */
+    public Camera(int id, int frequency, List<StampedDetectedObjects> detectedObjectsList, String cameraKey,
+                  StatisticalFolder stats) {
         this.id = id;
+        this.stats = stats;
         this.frequency = frequency;
         this.status = STATUS.UP;
         this.cameraKey = cameraKey;
@@ -91,22 +102,38 @@ public class Camera {
     }
 
     public List<StampedDetectedObjects> getStampedDetectedObjects(int currentTick) {
+        return getStampedDetectedObjects(currentTick, currentTick);
+    }
+
+    /**
+     * Collects the detections due to be sent at any tick from {@code fromTick} to
+     * {@code toTick}, in list order. Stops after the first time stamp holding an
+     * erroneous detection.
+     *
+     * @param fromTick The first tick of the range.
+     * @param toTick   The last tick of the range.
+     * @return The detections due in the range.
+     */
+    public List<StampedDetectedObjects> getStampedDetectedObjects(int fromTick, int toTick) {
         List<StampedDetectedObjects> objs = new ArrayList<>();
-        detectedObjectsList.stream()
-            .filter(stampedObject -> stampedObject.getTime() == (currentTick - frequency))
-            .forEach(stampedObject -> {
-                objs.add(stampedObject);
-                for (DetectedObject detectedObject: stampedObject.getDetectedObjects()) {
-                    if (detectedObject.getId().equals("ERROR")) {
-                        this.status = STATUS.ERROR;
-                        this.errorMessgae = detectedObject.getDescription();
-                    }
-                }
-                if (this.status != STATUS.ERROR) {
-                    this.lastStampedDetectedObjects = stampedObject;
-                    stats.addDetectedObjects(stampedObject.getDetectedObjects().size());
+        for (StampedDetectedObjects stampedObject : detectedObjectsList) {
+            int dueTick = stampedObject.getTime() + frequency;
+            if (dueTick < fromTick || dueTick > toTick) {
+                continue;
+            }
+            objs.add(stampedObject);
+            for (DetectedObject detectedObject: stampedObject.getDetectedObjects()) {
+                if (detectedObject.getId().equals("ERROR")) {
+                    this.status = STATUS.ERROR;
+                    this.errorMessgae = detectedObject.getDescription();
                 }
-            });
+            }
+            if (this.status == STATUS.ERROR) {
+                break;
+            }
+            this.lastStampedDetectedObjects = stampedObject;
+            stats.addDetectedObjects(stampedObject.getDetectedObjects().size());
+        }
         return objs;
     }
 
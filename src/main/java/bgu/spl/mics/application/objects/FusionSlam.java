@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Manages the fusion of sensor data for simultaneous localization and mapping (SLAM).
@@ -40,18 +41,29 @@ public class FusionSlam {
     private final List<Pose> poses;
     private int numOfSensors;
     private int terminatedSensorsCounter;
-    private final StatisticalFolder stats = StatisticalFolder.getInstance();
+    private final StatisticalFolder stats;
     private ConcurrentHashMap<String, List<TrackedObject>> lastLiDarWorkerTrackersFrame = new ConcurrentHashMap<>();
     private ConcurrentHashMap<String, StampedDetectedObjects> lastCamerasFrame = new ConcurrentHashMap<>();
+    private final AtomicBoolean exported = new AtomicBoolean(false);
 
 
-    // Private constructor to prevent instantiation
+    // Private constructor for the singleton instance, which counts into the shared statistics
     private FusionSlam(int numOfSensors) {
+        this(numOfSensors, StatisticalFolder.getInstance());
+    }
+
+    /**
+     * Creates the map of a single simulation.
+     *
+     * @param numOfSensors The number of sensors whose termination ends the simulation.
+     * @param stats        The statistics the landmarks are counted in.
+     */
+    public FusionSlam(int numOfSensors, StatisticalFolder stats) {
         this.landmarks = new ArrayList<>();
         this.poses = new ArrayList<>();
         this.numOfSensors = numOfSensors;
         this.terminatedSensorsCounter = 0;
-
+        this.stats = stats;
     }
 
     /**
@@ -194,5 +206,14 @@ public class FusionSlam {
         return lastLiDarWorkerTrackersFrame;
     }
 
+    /**
+     * Claims the single export of this map's output file.
+     *
+     * @return True the first time only; the caller then writes the output.
+     */
+    public boolean claimExport() {
+        return exported.compareAndSet(false, true);
+    }
+
 
 }
\ No newline at end of file
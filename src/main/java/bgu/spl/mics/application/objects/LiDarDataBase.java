@@ -21,32 +21,39 @@ public class LiDarDataBase {
         // Called from initialize() below
         private static synchronized void init(String filePath) {
             if (instance == null) {
-                try (FileReader reader = new FileReader(filePath)) {
-                    Gson gson = new Gson();
-                    Type listType = new TypeToken<List<StampedCloudPointsParse>>() {}.getType();
-                    List<StampedCloudPointsParse> data = gson.fromJson(reader, listType);
-                    List<StampedCloudPoints> transformedData = new ArrayList<>();
-                    for (StampedCloudPointsParse stampedCloudPoints : data) {
-                        List<CloudPoint> points = new ArrayList<>();
-                        for (List<Double> point : stampedCloudPoints.getCloudPoints()) {
-                            points.add(new CloudPoint(point.get(0), point.get(1)));
-                        }
-                        transformedData.add(new StampedCloudPoints(
-                                stampedCloudPoints.getId(),
-                                stampedCloudPoints.getTime(),
-                                points
-                        ));
-                    }
+                instance = load(filePath);
+            }
+        }
+    }
 
-                    instance = new LiDarDataBase(transformedData);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    throw new RuntimeException("Failed to load LiDAR data from file: " + filePath, e);
-                }
+    /**
+     * Loads a database of its own from {@code filePath}, for a simulation that does
+     * not use the shared instance.
+     */
+    public static LiDarDataBase load(String filePath) {
+        try (FileReader reader = new FileReader(filePath)) {
+            Gson gson = new Gson();
+            Type listType = new TypeToken<List<StampedCloudPointsParse>>() {}.getType();
+            List<StampedCloudPointsParse> data = gson.fromJson(reader, listType);
+            List<StampedCloudPoints> transformedData = new ArrayList<>();
+            for (StampedCloudPointsParse stampedCloudPoints : data) {
+                transformedData.add(stampedCloudPoints.toStampedCloudPoints());
             }
+
+            return new LiDarDataBase(transformedData);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to load LiDAR data from file: " + filePath, e);
         }
     }
 
+    /**
+     * Creates a database of its own holding {@code cloudPoints}, already parsed.
+     */
+    public static LiDarDataBase of(List<StampedCloudPoints> cloudPoints) {
+        return new LiDarDataBase(cloudPoints);
+    }
+
     public static synchronized void initialize(String filePath) {
         // If re-initializing is not desired, you could remove the reset line.
         LiDarDataBaseHolder.instance = null;  // allow re-initialization if needed
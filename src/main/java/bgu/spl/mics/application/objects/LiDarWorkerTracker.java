@@ -18,7 +18,7 @@ public class LiDarWorkerTracker {
     private STATUS status;
     private List<TrackedObject> trackedObjects;
     private List<TrackedObject> lastTrackedObjects;
-    private final StatisticalFolder stats = StatisticalFolder.getInstance();
+    private final StatisticalFolder stats;
 
     /**
      * Constructor for LiDarWorkerTracker.
@@ -29,7 +29,17 @@ public class LiDarWorkerTracker {
      * @param lastTrackedObjects The last objects tracked by the LiDAR.
      */
     public LiDarWorkerTracker(int id, int frequency) {
+        this(id, frequency, StatisticalFolder.getInstance());
+    }
+
+    /**
+     * Constructor for a LiDAR tracker counting its tracked objects into {@code stats}.
+     *
+     * @param stats     The statistics of the simulation the tracker belongs to.
+     */
+    public LiDarWorkerTracker(int id, int frequency, StatisticalFolder stats) {
         this.id = id;
+        this.stats = stats;
         this.frequency = frequency;
         this.status = STATUS.UP;
         this.lastTrackedObjects = new ArrayList<>();
@@ -82,8 +92,31 @@ public class LiDarWorkerTracker {
     }
 
     public List<TrackedObject> matchTrackedObjects(int currentTick) {
+        return matchTrackedObjects(currentTick, currentTick);
+    }
+
+    /**
+     * Takes the tracked objects due to be sent at {@code tick} or at any tick before
+     * it, including ticks handled at once with a later one.
+     *
+     * @param tick The last tick objects may be due at.
+     * @return The tracked objects due by {@code tick}, empty if there are none.
+     */
+    public List<TrackedObject> matchDueBy(int tick) {
+        return matchTrackedObjects(Integer.MIN_VALUE, tick);
+    }
+
+    /**
+     * Takes the tracked objects due to be sent at any tick from {@code fromTick}
+     * to {@code toTick}.
+     *
+     * @param fromTick The first tick of the range.
+     * @param toTick   The last tick of the range.
+     * @return The tracked objects due in the range, empty if there are none.
+     */
+    public List<TrackedObject> matchTrackedObjects(int fromTick, int toTick) {
         List<TrackedObject> matchTrackedObjects =  trackedObjects.stream().filter(
-            obj -> obj.getTime() == (currentTick - frequency)
+            obj -> obj.getTime() + frequency >= fromTick && obj.getTime() + frequency <= toTick
             ).collect(Collectors.toList());
 
         if (!matchTrackedObjects.isEmpty()) {
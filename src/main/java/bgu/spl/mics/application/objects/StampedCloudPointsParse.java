@@ -1,5 +1,6 @@
 package bgu.spl.mics.application.objects;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class StampedCloudPointsParse {
@@ -32,4 +33,15 @@ public class StampedCloudPointsParse {
     public List<List<Double>> getCloudPoints() {
         return cloudPoints;
     }
+
+    /**
+     * @return The parsed entry with its points as CloudPoints, of which only x and y are kept.
+     */
+    public StampedCloudPoints toStampedCloudPoints() {
+        List<CloudPoint> points = new ArrayList<>();
+        for (List<Double> point : cloudPoints) {
+            points.add(new CloudPoint(point.get(0), point.get(1)));
+        }
+        return new StampedCloudPoints(id, time, points);
+    }
 }
\ No newline at end of file
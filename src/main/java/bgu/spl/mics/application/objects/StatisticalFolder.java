@@ -10,8 +10,8 @@ public class StatisticalFolder {
     private final AtomicInteger numTrackedObjects; // Total objects tracked by LiDAR workers
     private final AtomicInteger numLandmarks; // Unique landmarks mapped
 
-    // Private constructor to prevent direct instantiation
-    private StatisticalFolder() {
+    // Creates the statistics of a single simulation; getInstance() returns the shared ones
+    public StatisticalFolder() {
         this.systemRuntime = new AtomicInteger(0);
         this.numDetectedObjects = new AtomicInteger(0);
         this.numTrackedObjects = new AtomicInteger(0);
@@ -31,6 +31,11 @@ public class StatisticalFolder {
         systemRuntime.incrementAndGet();
     }
 
+    // Add several ticks to system runtime at once
+    public void addRuntime(int ticks) {
+        systemRuntime.addAndGet(ticks);
+    }
+
     // Add to detected objects count
     public void addDetectedObjects(int count) {
         numDetectedObjects.addAndGet(count);
@@ -0,0 +1,337 @@
+package bgu.spl.mics.application.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Parses large JSON arrays in parallel. The file is read at once and split, at
+ * the boundaries of the array elements, into chunks of about {@code chunkBytes};
+ * Gson parses each chunk as an array of its own on the executor, and the
+ * elements are joined back in file order. An array smaller than a chunk is
+ * parsed as a single one.
+ * <p>
+ * The split only follows the JSON structure; anything it does not recognize,
+ * such as the comments Gson accepts, makes the whole array a single chunk, so
+ * the result is always what Gson would parse. Likewise an object of arrays with
+ * a duplicate key, content after it, or anything else the split does not
+ * recognize is left to Gson as a whole, which parses or rejects it; the chunks
+ * the split already submitted are then cancelled.
+ */
+public class ChunkedJsonParser {
+
+    /**
+     * The chunk size used unless another is given, in bytes.
+     */
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    private static final byte[] OPEN_ARRAY = {'['};
+    private static final byte[] CLOSE_ARRAY = {']'};
+
+    private final Gson gson;
+    private final ExecutorService executor;
+    private final int chunkBytes;
+
+    /**
+     * @param executor   Parses the chunks; must not be a thread waiting on the result.
+     * @param chunkBytes The size above which an array is split, in bytes.
+     * @throws IllegalArgumentException if {@code chunkBytes} is not positive.
+     */
+    public ChunkedJsonParser(ExecutorService executor, int chunkBytes) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkBytes);
+        }
+        this.gson = new Gson();
+        this.executor = executor;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Parses {@code file}, a JSON array of {@code elementType}, converting every
+     * element on the thread that parsed it.
+     *
+     * @return The converted elements, in file order.
+     * @throws FileNotFoundException if {@code file} does not exist.
+     */
+    public <T, R> List<R> parseArray(Path file, Class<T> elementType, Function<? super T, ? extends R> convert)
+            throws IOException {
+        byte[] json = read(file);
+        return join(submitArray(json, 0, json.length, elementType, convert));
+    }
+
+    /**
+     * Parses {@code file}, a JSON object whose values are arrays of {@code elementType}.
+     * The chunks of all the arrays are parsed at the same time.
+     *
+     * @return The arrays by key, in file order.
+     * @throws FileNotFoundException if {@code file} does not exist.
+     */
+    public <T> Map<String, List<T>> parseObjectOfArrays(Path file, Class<T> elementType) throws IOException {
+        byte[] json = read(file);
+        Map<String, List<Future<List<T>>>> chunksByKey = splitObject(json, elementType);
+        if (chunksByKey == null) {
+            Type mapType = TypeToken.getParameterized(Map.class, String.class,
+                TypeToken.getParameterized(List.class, elementType).getType()).getType();
+            return gson.fromJson(readerOf(json, 0, json.length, false), mapType);
+        }
+        Map<String, List<T>> arrays = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Future<List<T>>>> entry : chunksByKey.entrySet()) {
+            arrays.put(entry.getKey(), join(entry.getValue()));
+        }
+        return arrays;
+    }
+
+    /**
+     * @return The chunks of each array value of the top-level object; null, with
+     *         the chunks submitted so far cancelled, if the file is not a plain JSON
+     *         object of arrays with distinct keys.
+     */
+    private <T> Map<String, List<Future<List<T>>>> splitObject(byte[] json, Class<T> elementType) {
+        Map<String, List<Future<List<T>>>> chunksByKey = new LinkedHashMap<>();
+        int pos = skipWhitespace(json, 0, json.length);
+        if (pos == json.length || json[pos] != '{') {
+            return null;
+        }
+        pos = skipWhitespace(json, pos + 1, json.length);
+        boolean more = pos < json.length && json[pos] != '}';
+        while (more) {
+            int keyEnd = endOfValue(json, pos, json.length);
+            if (keyEnd < 0 || json[pos] != '"') {
+                return cancel(chunksByKey);
+            }
+            String key = gson.fromJson(new String(json, pos, keyEnd - pos, StandardCharsets.UTF_8), String.class);
+            if (chunksByKey.containsKey(key)) {
+                return cancel(chunksByKey); // Gson rejects a duplicate key.
+            }
+            pos = skipWhitespace(json, keyEnd, json.length);
+            if (pos == json.length || json[pos] != ':') {
+                return cancel(chunksByKey);
+            }
+            int valueStart = skipWhitespace(json, pos + 1, json.length);
+            int valueEnd = endOfValue(json, valueStart, json.length);
+            if (valueEnd < 0 || json[valueStart] != '[') {
+                return cancel(chunksByKey);
+            }
+            chunksByKey.put(key, submitArray(json, valueStart, valueEnd, elementType, Function.identity()));
+            pos = skipWhitespace(json, valueEnd, json.length);
+            more = pos < json.length && json[pos] == ',';
+            if (more) {
+                pos = skipWhitespace(json, pos + 1, json.length);
+            }
+        }
+        if (pos == json.length || json[pos] != '}' || skipWhitespace(json, pos + 1, json.length) < json.length) {
+            return cancel(chunksByKey);
+        }
+        return chunksByKey;
+    }
+
+    // Cancels the chunks submitted by a split that gave up, returning null as it does.
+    private static <T> Map<String, List<Future<List<T>>>> cancel(Map<String, List<Future<List<T>>>> chunksByKey) {
+        chunksByKey.values().forEach(chunks -> chunks.forEach(chunk -> chunk.cancel(true)));
+        return null;
+    }
+
+    // Submits the chunks of the array at json[from, to), in order.
+    private <T, R> List<Future<List<R>>> submitArray(byte[] json, int from, int to, Class<T> elementType,
+                                                     Function<? super T, ? extends R> convert) {
+        List<int[]> ranges = splitArray(json, from, to);
+        List<Future<List<R>>> chunks = new ArrayList<>();
+        if (ranges == null) {
+            chunks.add(executor.submit(() -> parseChunk(json, from, to, false, elementType, convert)));
+        } else {
+            for (int[] range : ranges) {
+                chunks.add(executor.submit(() -> parseChunk(json, range[0], range[1], true, elementType, convert)));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return The ranges of consecutive elements of the array at json[from, to),
+     *         each spanning at least chunkBytes but the last; null if it is not a
+     *         plain JSON array.
+     */
+    private List<int[]> splitArray(byte[] json, int from, int to) {
+        List<int[]> ranges = new ArrayList<>();
+        int pos = skipWhitespace(json, from, to);
+        if (pos == to || json[pos] != '[') {
+            return null;
+        }
+        pos = skipWhitespace(json, pos + 1, to);
+        if (pos < to && json[pos] == ']') {
+            return ranges;
+        }
+        int chunkStart = pos;
+        while (pos < to) {
+            int end = endOfValue(json, pos, to);
+            if (end < 0) {
+                return null;
+            }
+            pos = skipWhitespace(json, end, to);
+            if (pos == to) {
+                return null;
+            }
+            boolean last = json[pos] == ']';
+            if (!last && json[pos] != ',') {
+                return null;
+            }
+            if (last || end - chunkStart >= chunkBytes) {
+                ranges.add(new int[] {chunkStart, end});
+                if (last) {
+                    return skipWhitespace(json, pos + 1, to) == to ? ranges : null;
+                }
+                chunkStart = skipWhitespace(json, pos + 1, to);
+            }
+            pos = skipWhitespace(json, pos + 1, to);
+        }
+        return null;
+    }
+
+    private <T, R> List<R> parseChunk(byte[] json, int from, int to, boolean elementsOnly, Class<T> elementType,
+                                      Function<? super T, ? extends R> convert) {
+        Type listType = TypeToken.getParameterized(List.class, elementType).getType();
+        List<T> elements = gson.fromJson(readerOf(json, from, to, elementsOnly), listType);
+        if (elements == null) {
+            return Collections.emptyList(); // A JSON null.
+        }
+        List<R> converted = new ArrayList<>(elements.size());
+        for (T element : elements) {
+            converted.add(convert.apply(element));
+        }
+        return converted;
+    }
+
+    // Reads json[from, to), enclosed in brackets if it holds the elements of an array only.
+    private static Reader readerOf(byte[] json, int from, int to, boolean elementsOnly) {
+        InputStream slice = new ByteArrayInputStream(json, from, to - from);
+        if (elementsOnly) {
+            slice = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                new ByteArrayInputStream(OPEN_ARRAY), slice, new ByteArrayInputStream(CLOSE_ARRAY))));
+        }
+        return new InputStreamReader(slice, StandardCharsets.UTF_8);
+    }
+
+    private static <R> List<R> join(List<Future<List<R>>> chunks) throws IOException {
+        List<R> joined = new ArrayList<>();
+        for (Future<List<R>> chunk : chunks) {
+            List<R> elements;
+            try {
+                elements = chunk.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                chunks.forEach(pending -> pending.cancel(true));
+                throw new InterruptedIOException("Interrupted while parsing");
+            } catch (ExecutionException e) {
+                chunks.forEach(pending -> pending.cancel(true));
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+            joined.addAll(elements);
+        }
+        return joined;
+    }
+
+    private static byte[] read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            throw new FileNotFoundException(file.toString());
+        }
+        return Files.readAllBytes(file);
+    }
+
+    private static int skipWhitespace(byte[] json, int pos, int to) {
+        while (pos < to && (json[pos] == ' ' || json[pos] == '\n' || json[pos] == '\r' || json[pos] == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return The index just past the JSON value starting at {@code pos}, or -1 if
+     *         it does not end before {@code to} or holds anything but JSON.
+     */
+    private static int endOfValue(byte[] json, int pos, int to) {
+        if (pos >= to) {
+            return -1;
+        }
+        byte first = json[pos];
+        if (first == '"') {
+            return endOfString(json, pos, to);
+        }
+        if (first == '[' || first == '{') {
+            int depth = 0;
+            while (pos < to) {
+                byte b = json[pos];
+                if (b == '"') {
+                    pos = endOfString(json, pos, to);
+                    if (pos < 0) {
+                        return -1;
+                    }
+                    continue;
+                }
+                if (b == '/' || b == '#') {
+                    return -1; // A comment, left to Gson.
+                }
+                if (b == '[' || b == '{') {
+                    depth++;
+                } else if (b == ']' || b == '}') {
+                    depth--;
+                    if (depth == 0) {
+                        return pos + 1;
+                    }
+                }
+                pos++;
+            }
+            return -1;
+        }
+        int start = pos;
+        while (pos < to && json[pos] != ',' && json[pos] != ']' && json[pos] != '}'
+                && json[pos] != ' ' && json[pos] != '\n' && json[pos] != '\r' && json[pos] != '\t') {
+            if (json[pos] == '/' || json[pos] == '#' || json[pos] == '"') {
+                return -1;
+            }
+            pos++;
+        }
+        return pos > start ? pos : -1;
+    }
+
+    private static int endOfString(byte[] json, int pos, int to) {
+        pos++;
+        while (pos < to) {
+            byte b = json[pos++];
+            if (b == '\\') {
+                pos++;
+            } else if (b == '"') {
+                return pos;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,17 +1,41 @@
 package bgu.spl.mics.application.parser;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import bgu.spl.mics.RoutingStrategy;
+import bgu.spl.mics.application.ExecutionMode;
+import bgu.spl.mics.application.TickMode;
+
 public class Configurations {
     private Cameras Cameras;
     private LidarWorkers LiDarWorkers;
     private String poseJsonFile;
     private int TickTime;
+    private String TickTimeUnit;
     private int Duration;
+    private Mailboxes Mailboxes;
+    private long FutureTimeout;
+    private ExecutionMode ExecutionMode;
+    private int ActorBatchSize;
+    private Map<String, RoutingStrategy> Routing;
+    private TickMode TickMode;
+    private boolean EndOnQuiescence;
 
 
     public int getTickTime() {
         return TickTime;
     }
 
+    /**
+     * @return The unit of TickTime, one of the {@link TimeUnit} names; SECONDS unless configured.
+     * @throws IllegalArgumentException if the configured unit is not a TimeUnit name.
+     */
+    public TimeUnit getTickTimeUnit() {
+        return TickTimeUnit == null ? TimeUnit.SECONDS : TimeUnit.valueOf(TickTimeUnit);
+    }
+
     public int getDuration() {
         return Duration;
     }
@@ -28,4 +52,52 @@ public class Configurations {
         return Cameras;
     }
 
+    /**
+     * @return The time in milliseconds after which an uncompleted future expires, 0 for never.
+     */
+    public long getFutureTimeout() {
+        return FutureTimeout;
+    }
+
+    public Mailboxes getMailboxes() {
+        return Mailboxes;
+    }
+
+    /**
+     * @return How the services are executed; PLATFORM threads unless configured.
+     */
+    public ExecutionMode getExecutionMode() {
+        return ExecutionMode == null ? bgu.spl.mics.application.ExecutionMode.PLATFORM : ExecutionMode;
+    }
+
+    /**
+     * @return The number of messages a service handles before yielding in the ACTOR execution mode.
+     */
+    public int getActorBatchSize() {
+        return ActorBatchSize > 0 ? ActorBatchSize : bgu.spl.mics.application.ExecutionMode.DEFAULT_ACTOR_BATCH_SIZE;
+    }
+
+    /**
+     * @return The routing strategy of each event type, by simple class name; empty unless configured.
+     */
+    public Map<String, RoutingStrategy> getRouting() {
+        return Routing == null ? Collections.<String, RoutingStrategy>emptyMap() : Routing;
+    }
+
+    /**
+     * @return How the ticks are paced; WALL_CLOCK unless configured.
+     */
+    public TickMode getTickMode() {
+        return TickMode == null ? bgu.spl.mics.application.TickMode.WALL_CLOCK : TickMode;
+    }
+
+    /**
+     * @return Whether the simulation ends as soon as no message is in flight and
+     *         no service holds pending work, rather than once every sensor terminated;
+     *         false unless configured.
+     */
+    public boolean isEndOnQuiescence() {
+        return EndOnQuiescence;
+    }
+
 }
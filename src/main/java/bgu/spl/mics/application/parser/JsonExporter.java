@@ -5,18 +5,34 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import bgu.spl.mics.LagHistogram;
+import bgu.spl.mics.MessageBusImpl;
 import bgu.spl.mics.application.objects.FusionSlam;
 import bgu.spl.mics.application.objects.Landmark;
 import bgu.spl.mics.application.objects.StatisticalFolder;
 
 public class JsonExporter {
     public static void exportStatistics(List<Landmark> landmarks) {
-        StatisticalFolder stats = StatisticalFolder.getInstance();
+        exportStatistics(landmarks, StatisticalFolder.getInstance(),
+            MessageBusImpl.getInstance().getDeliveryLags(), JsonParser.getInstance().getDir());
+    }
+
+    /**
+     * Writes output_file.json of a simulation that does not use the shared instances.
+     *
+     * @param stats    The statistics of the simulation.
+     * @param tickLags The delays with which each service received its ticks, see
+     *                 {@link MessageBusImpl#getDeliveryLags()}; left out of the output if empty.
+     * @param dir      The directory of its configuration file, where the output goes.
+     */
+    public static void exportStatistics(List<Landmark> landmarks, StatisticalFolder stats,
+                                        Map<String, LagHistogram> tickLags, String dir) {
 
         // Prepare JSON data
         ValidOutput data = new ValidOutput(
@@ -24,12 +40,13 @@ public class JsonExporter {
             stats.getNumDetectedObjects(),
             stats.getNumTrackedObjects(),
             stats.getNumLandmarks(),
-            landmarks.stream().collect(Collectors.toMap(Landmark::getId, landmark -> landmark))
+            landmarks.stream().collect(Collectors.toMap(Landmark::getId, landmark -> landmark)),
+            TickLag.of(tickLags)
         );
 
         // Convert to JSON and write to file
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        Path fullPath = Paths.get(JsonParser.getInstance().getDir(), "output_file.json");
+        Path fullPath = Paths.get(dir, "output_file.json");
         try (FileWriter writer = new FileWriter(fullPath.normalize().toFile())) {
             gson.toJson(data, writer);
             System.out.println("Statistics exported successfully to: " + fullPath.normalize().toString());
@@ -39,8 +56,21 @@ public class JsonExporter {
     }
 
     public static void exportErrorOutput(String errorMessage, String faultySensor,List<Landmark> landmarks) {
-        StatisticalFolder stats = StatisticalFolder.getInstance();
-        FusionSlam fusionSlam = FusionSlam.getInstance();
+        exportErrorOutput(errorMessage, faultySensor, landmarks, FusionSlam.getInstance(),
+            StatisticalFolder.getInstance(), MessageBusImpl.getInstance().getDeliveryLags(), JsonParser.getInstance().getDir());
+    }
+
+    /**
+     * Writes the error output of a simulation that does not use the shared instances.
+     *
+     * @param fusionSlam The map of the simulation, holding the last frames and the poses.
+     * @param stats      The statistics of the simulation.
+     * @param tickLags   The delays with which each service received its ticks; left out of the output if empty.
+     * @param dir        The directory of its configuration file, where the output goes.
+     */
+    public static void exportErrorOutput(String errorMessage, String faultySensor, List<Landmark> landmarks,
+                                         FusionSlam fusionSlam, StatisticalFolder stats,
+                                         Map<String, LagHistogram> tickLags, String dir) {
         // Prepare JSON data
         ErrorOutput data = new ErrorOutput(
             errorMessage,
@@ -48,12 +78,13 @@ public class JsonExporter {
             fusionSlam.getLastCamerasFrame(),
             fusionSlam.getLastLiDarWorkerTrackersFrame(),
             fusionSlam.getPoses(),
-            new Statistics(stats.getSystemRuntime(), stats.getNumDetectedObjects(), stats.getNumTrackedObjects(), stats.getNumLandmarks(), landmarks.stream().collect(Collectors.toMap(Landmark::getId, landmark -> landmark)))
+            new Statistics(stats.getSystemRuntime(), stats.getNumDetectedObjects(), stats.getNumTrackedObjects(), stats.getNumLandmarks(), landmarks.stream().collect(Collectors.toMap(Landmark::getId, landmark -> landmark)),
+                TickLag.of(tickLags))
         );
 
         // Convert to JSON and write to file
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        Path fullPath = Paths.get(JsonParser.getInstance().getDir(), "output_file.json");
+        Path fullPath = Paths.get(dir, "output_file.json");
         try (FileWriter writer = new FileWriter(fullPath.normalize().toFile())) {
             gson.toJson(data, writer);
             System.out.println("Statistics exported successfully to: " + fullPath.normalize().toString());
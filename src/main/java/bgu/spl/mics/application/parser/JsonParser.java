@@ -7,19 +7,33 @@ import java.lang.reflect.Type;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
+import bgu.spl.mics.BackpressurePolicy;
+import bgu.spl.mics.Event;
+import bgu.spl.mics.Mailbox;
+import bgu.spl.mics.MailboxFactory;
+import bgu.spl.mics.QueueMailbox;
+import bgu.spl.mics.RingBufferMailbox;
+import bgu.spl.mics.RoutingStrategy;
 import bgu.spl.mics.application.objects.Camera;
 import bgu.spl.mics.application.objects.GPSIMU;
+import bgu.spl.mics.application.objects.LiDarDataBase;
 import bgu.spl.mics.application.objects.LiDarWorkerTracker;
 import bgu.spl.mics.application.objects.Pose;
+import bgu.spl.mics.application.objects.StampedCloudPointsParse;
 import bgu.spl.mics.application.objects.StampedDetectedObjects;
+import bgu.spl.mics.application.objects.StatisticalFolder;
 
 public class JsonParser{
+    private static final int DEFAULT_RING_BUFFER_CAPACITY = 1024;
+    private static final String EVENTS_PACKAGE = "bgu.spl.mics.application.messages.events";
+
     private Configurations config;
     private String dir;
 
@@ -63,8 +77,13 @@ public class JsonParser{
     }
 
     public List<Camera> getCameras() throws FileNotFoundException {
-        List<Camera> cameras = new ArrayList<>();
+        return getCameras(StatisticalFolder.getInstance());
+    }
 
+    /**
+     * @param stats The statistics the cameras count their detections into.
+     */
+    public List<Camera> getCameras(StatisticalFolder stats) throws FileNotFoundException {
         Gson gson = new Gson();
         Path fullPath = Paths.get(dir, config.getCameras().getCamera_datas_path());
         System.err.println(fullPath.normalize().toFile());
@@ -74,24 +93,45 @@ public class JsonParser{
 
         // Parse the JSON into the Map
         Map<String, List<StampedDetectedObjects>> cameraData = gson.fromJson(reader, mapType);
+        return toCameras(cameraData, stats);
+    }
+
+    /**
+     * As {@link #getCameras(StatisticalFolder)}, parsing the camera data in chunks with {@code chunkedParser}.
+     *
+     * @throws FileNotFoundException if the camera data file does not exist.
+     */
+    public List<Camera> getCameras(StatisticalFolder stats, ChunkedJsonParser chunkedParser) throws IOException {
+        return toCameras(chunkedParser.parseObjectOfArrays(Paths.get(getCameraDataPath()), StampedDetectedObjects.class), stats);
+    }
+
+    private List<Camera> toCameras(Map<String, List<StampedDetectedObjects>> cameraData, StatisticalFolder stats) {
+        List<Camera> cameras = new ArrayList<>();
 
         // Iterate over the cameras
         for (Map.Entry<String, List<StampedDetectedObjects>> entry : cameraData.entrySet()) {
             String cameraName = entry.getKey();
             List<StampedDetectedObjects> detections = entry.getValue();
             CameraConfiguration cameraConf = config.getCameras().getCameraConfiguration(cameraName);
-            cameras.add(new Camera(cameraConf.getId(), cameraConf.getFrequency(), detections, cameraName));
+            cameras.add(new Camera(cameraConf.getId(), cameraConf.getFrequency(), detections, cameraName, stats));
         }
         return cameras;
     }
 
     public List<LiDarWorkerTracker> getLidarWorkers() {
+        return getLidarWorkers(StatisticalFolder.getInstance());
+    }
+
+    /**
+     * @param stats The statistics the workers count their tracked objects into.
+     */
+    public List<LiDarWorkerTracker> getLidarWorkers(StatisticalFolder stats) {
         List<LiDarWorkerTracker> workers = new ArrayList<>();
 
         for (LidarConfiguration conf : config.getLiDarWorkers().getLidarConfigurations()) {
             System.out.println("conf.getId()"+conf.getId());
             System.out.println("conf.getFrequency()"+conf.getFrequency());
-            workers.add(new LiDarWorkerTracker(conf.getId(), conf.getFrequency()));
+            workers.add(new LiDarWorkerTracker(conf.getId(), conf.getFrequency(), stats));
         }
         return workers;
     }
@@ -106,10 +146,106 @@ public class JsonParser{
         return new GPSIMU(poses);
     }
 
+    /**
+     * As {@link #getGPSIMU()}, parsing the poses in chunks with {@code chunkedParser}.
+     *
+     * @throws FileNotFoundException if the pose file does not exist.
+     */
+    public GPSIMU getGPSIMU(ChunkedJsonParser chunkedParser) throws IOException {
+        return new GPSIMU(chunkedParser.parseArray(Paths.get(getPoseDataPath()), Pose.class, pose -> pose));
+    }
+
+    /**
+     * Loads the LiDAR database at {@link #getLidarDatabasePath()}, parsing it in
+     * chunks with {@code chunkedParser}.
+     *
+     * @throws FileNotFoundException if the database file does not exist.
+     */
+    public LiDarDataBase getLiDarDataBase(ChunkedJsonParser chunkedParser) throws IOException {
+        return LiDarDataBase.of(chunkedParser.parseArray(Paths.get(getLidarDatabasePath()),
+            StampedCloudPointsParse.class, StampedCloudPointsParse::toStampedCloudPoints));
+    }
+
+    /**
+     * Builds the mailbox of each service from the "Mailboxes" section: a service
+     * listed in MailboxConfigurations gets its own capacity and policy, every other
+     * service gets the section defaults. Without the section all mailboxes are unbounded.
+     * The section "type" selects the implementation for every service; ring buffers are
+     * always bounded, {@value #DEFAULT_RING_BUFFER_CAPACITY} slots unless configured.
+     * With "priorityLanes" set, control messages overtake queued data messages.
+     * With "coalesceTicks" set, ticks queued for a lagging service collapse into one
+     * TickBroadcast covering all of them; only the QUEUE type supports it.
+     */
+    public MailboxFactory getMailboxFactory() {
+        Mailboxes mailboxes = config.getMailboxes();
+        if (mailboxes == null) {
+            return m -> new QueueMailbox();
+        }
+        if (mailboxes.isCoalesceTicks() && mailboxes.getType() != MailboxType.QUEUE) {
+            throw new IllegalArgumentException("coalesceTicks is supported only by QUEUE mailboxes.");
+        }
+        return m -> {
+            MailboxConfiguration conf = mailboxes.getMailboxConfiguration(m.getName());
+            if (conf != null) {
+                return createMailbox(mailboxes, conf.getCapacity(), conf.getPolicy());
+            }
+            return createMailbox(mailboxes, mailboxes.getCapacity(), mailboxes.getPolicy());
+        };
+    }
+
+    /**
+     * @return Whether broadcasts travel through a shared log, the "broadcastLog" field
+     *         of the "Mailboxes" section. The other mailbox settings then apply to
+     *         nothing, as the mailboxes hold only events and are unbounded.
+     */
+    public boolean isBroadcastLog() {
+        Mailboxes mailboxes = config.getMailboxes();
+        return mailboxes != null && mailboxes.isBroadcastLog();
+    }
+
+    /**
+     * Resolves the "Routing" section, which maps the simple name of an event class
+     * in {@value #EVENTS_PACKAGE} to its routing strategy.
+     * @throws IllegalArgumentException if a name is not such an event class.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Class<? extends Event<?>>, RoutingStrategy> getRouting() {
+        Map<Class<? extends Event<?>>, RoutingStrategy> routing = new LinkedHashMap<>();
+        for (Map.Entry<String, RoutingStrategy> entry : config.getRouting().entrySet()) {
+            Class<?> type;
+            try {
+                type = Class.forName(EVENTS_PACKAGE + "." + entry.getKey());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("Unknown event type in Routing: " + entry.getKey());
+            }
+            if (!Event.class.isAssignableFrom(type) || entry.getValue() == null) {
+                throw new IllegalArgumentException("Invalid Routing entry: " + entry.getKey());
+            }
+            routing.put((Class<? extends Event<?>>) type, entry.getValue());
+        }
+        return routing;
+    }
+
+    private Mailbox createMailbox(Mailboxes mailboxes, int capacity, BackpressurePolicy policy) {
+        if (mailboxes.getType() == MailboxType.RING_BUFFER) {
+            return new RingBufferMailbox(capacity > 0 ? capacity : DEFAULT_RING_BUFFER_CAPACITY, policy,
+                mailboxes.getWaitStrategy(), mailboxes.isPriorityLanes());
+        }
+        return new QueueMailbox(capacity, policy, mailboxes.isPriorityLanes(), mailboxes.isCoalesceTicks());
+    }
+
     public String getDir() {
         return dir;
     }
 
+    public String getCameraDataPath() {
+        return Paths.get(dir, config.getCameras().getCamera_datas_path()).normalize().toString();
+    }
+
+    public String getPoseDataPath() {
+        return Paths.get(dir, config.getPoseJsonFile()).normalize().toString();
+    }
+
     public String getLidarDatabasePath() {
         Path fullPath = Paths.get(dir, config.getLiDarWorkers().getLidars_data_path());
         return fullPath.normalize().toString();
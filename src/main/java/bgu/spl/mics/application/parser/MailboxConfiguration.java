@@ -0,0 +1,20 @@
+package bgu.spl.mics.application.parser;
+
+import bgu.spl.mics.BackpressurePolicy;
+
+public class MailboxConfiguration {
+    private String service;
+    private int capacity;
+    private BackpressurePolicy policy;
+
+    public String getService() {
+        return service;
+    }
+    public int getCapacity() {
+        return capacity;
+    }
+    public BackpressurePolicy getPolicy() {
+        return policy == null ? BackpressurePolicy.BLOCK : policy;
+    }
+
+}
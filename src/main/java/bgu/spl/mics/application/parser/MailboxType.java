@@ -0,0 +1,9 @@
+package bgu.spl.mics.application.parser;
+
+/**
+ * The mailbox implementation selected by the "Mailboxes" section of the configuration file.
+ */
+public enum MailboxType {
+    QUEUE,
+    RING_BUFFER
+}
@@ -0,0 +1,61 @@
+package bgu.spl.mics.application.parser;
+
+import java.util.List;
+
+import bgu.spl.mics.BackpressurePolicy;
+import bgu.spl.mics.WaitStrategy;
+
+public class Mailboxes {
+    private List<MailboxConfiguration> MailboxConfigurations;
+    private int capacity;
+    private BackpressurePolicy policy;
+    private MailboxType type;
+    private WaitStrategy waitStrategy;
+    private boolean priorityLanes;
+    private boolean coalesceTicks;
+    private boolean broadcastLog;
+
+    public List<MailboxConfiguration> getMailboxConfigurations() {
+        return MailboxConfigurations;
+    }
+    public MailboxConfiguration getMailboxConfiguration(String service) {
+        if (MailboxConfigurations == null) {
+            return null;
+        }
+        for (MailboxConfiguration conf : MailboxConfigurations) {
+            if (conf.getService().equals(service)) {
+                return conf;
+            }
+        }
+        return null;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public BackpressurePolicy getPolicy() {
+        return policy == null ? BackpressurePolicy.BLOCK : policy;
+    }
+
+    public MailboxType getType() {
+        return type == null ? MailboxType.QUEUE : type;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy == null ? WaitStrategy.BLOCKING : waitStrategy;
+    }
+
+    public boolean isPriorityLanes() {
+        return priorityLanes;
+    }
+
+    public boolean isCoalesceTicks() {
+        return coalesceTicks;
+    }
+
+    public boolean isBroadcastLog() {
+        return broadcastLog;
+    }
+
+}
@@ -10,13 +10,15 @@ class Statistics {
     int numTrackedObjects;
     int numLandmarks;
     Map<String, Landmark> landMarks;
+    Map<String, TickLag> tickLagMicros;
 
     public Statistics(int systemRuntime, int numDetectedObjects, int numTrackedObjects, int numLandmarks,
-            Map<String, Landmark> landMarks) {
+            Map<String, Landmark> landMarks, Map<String, TickLag> tickLagMicros) {
         this.systemRuntime = systemRuntime;
         this.numDetectedObjects = numDetectedObjects;
         this.numTrackedObjects = numTrackedObjects;
         this.numLandmarks = numLandmarks;
         this.landMarks = landMarks;
+        this.tickLagMicros = tickLagMicros;
     }
 }
\ No newline at end of file
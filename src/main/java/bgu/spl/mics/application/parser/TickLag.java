@@ -0,0 +1,42 @@
+package bgu.spl.mics.application.parser;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import bgu.spl.mics.LagHistogram;
+
+/**
+ * The delays in microseconds with which a service received its ticks, after they were due.
+ */
+class TickLag {
+    long count;
+    long p50;
+    long p90;
+    long p99;
+    long max;
+
+    TickLag(LagHistogram lags) {
+        this.count = lags.getCount();
+        this.p50 = toMicros(lags.getPercentile(50));
+        this.p90 = toMicros(lags.getPercentile(90));
+        this.p99 = toMicros(lags.getPercentile(99));
+        this.max = toMicros(lags.getMax());
+    }
+
+    /**
+     * @return The tick lags of every service that received a scheduled tick, by
+     *         service name; null if none did, so the output leaves them out.
+     */
+    static Map<String, TickLag> of(Map<String, LagHistogram> deliveryLags) {
+        if (deliveryLags.isEmpty()) {
+            return null;
+        }
+        Map<String, TickLag> tickLags = new TreeMap<>();
+        deliveryLags.forEach((name, lags) -> tickLags.put(name, new TickLag(lags)));
+        return tickLags;
+    }
+
+    private static long toMicros(long nanos) {
+        return nanos / 1000;
+    }
+}
@@ -10,12 +10,19 @@ public class ValidOutput {
     private final int numTrackedObjects;
     private final int numLandmarks;
     private final Map<String, Landmark> landMarks;
+    private final Map<String, TickLag> tickLagMicros;
 
     public ValidOutput(int systemRuntime, int numDetectedObjects, int numTrackedObjects, int numLandmarks, Map<String, Landmark> landMarks) {
+        this(systemRuntime, numDetectedObjects, numTrackedObjects, numLandmarks, landMarks, null);
+    }
+
+    ValidOutput(int systemRuntime, int numDetectedObjects, int numTrackedObjects, int numLandmarks, Map<String, Landmark> landMarks,
+            Map<String, TickLag> tickLagMicros) {
         this.systemRuntime = systemRuntime;
         this.numDetectedObjects = numDetectedObjects;
         this.numTrackedObjects = numTrackedObjects;
         this.numLandmarks = numLandmarks;
         this.landMarks = landMarks;
+        this.tickLagMicros = tickLagMicros;
     }
 }
\ No newline at end of file
@@ -1,8 +1,10 @@
 package bgu.spl.mics.application.services;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import bgu.spl.mics.MicroService;
+import bgu.spl.mics.application.SimulationContext;
 import bgu.spl.mics.application.messages.broadcast.CrashedBroadcast;
 import bgu.spl.mics.application.messages.broadcast.TerminatedBroadcast;
 import bgu.spl.mics.application.messages.broadcast.TickBroadcast;
@@ -22,6 +24,7 @@ import bgu.spl.mics.application.objects.StampedDetectedObjects;
 public class CameraService extends MicroService {
 
     private final Camera camera;
+    private final SimulationContext context;
 
     /**
      * Constructor for CameraService.
@@ -29,8 +32,18 @@ public class CameraService extends MicroService {
      * @param camera The Camera object that this service will use to detect objects.
      */
     public CameraService(Camera camera) {
-        super("CameraService" + camera.getId());
+        this(camera, SimulationContext.shared());
+    }
+
+    /**
+     * Constructor for a CameraService of the simulation {@code context}.
+     *
+     * @param context The simulation whose bus and map this service uses.
+     */
+    public CameraService(Camera camera, SimulationContext context) {
+        super("CameraService" + camera.getId(), context.getMessageBus());
         this.camera = camera;
+        this.context = context;
     }
 
     /**
@@ -40,18 +53,27 @@ public class CameraService extends MicroService {
      */
     @Override
     protected void initialize() {
+        // Holds work until its last detection is sent
+        setPendingWork(camera.getDetectedObjectsList().isEmpty() ? 0 : 1);
+
         // Subscribe to TickBroadcast
 
     //  TODO: add status handle.
         subscribeBroadcast(TickBroadcast.class, (TickBroadcast tick) -> {
             int currentTick = tick.getTick();
-            List<StampedDetectedObjects> objs = camera.getStampedDetectedObjects(currentTick);
+            List<StampedDetectedObjects> objs = camera.getStampedDetectedObjects(tick.getFromTick(), currentTick);
             if (camera.getStatus() == STATUS.ERROR) {
                 sendBroadcast(new CrashedBroadcast(this.camera.getCameraKey(), camera.getErrorMessgae()));
-            } else {
+            } else if (!objs.isEmpty()) {
+                List<DetectObjectsEvent> events = new ArrayList<>(objs.size());
                 for (StampedDetectedObjects stampedObject : objs) {
-                    sendEvent(new DetectObjectsEvent(currentTick, stampedObject.getTime(), stampedObject.getDetectedObjects()));
+                    int sendTick = stampedObject.getTime() + camera.getFrequency();
+                    events.add(new DetectObjectsEvent(sendTick, stampedObject.getTime(), stampedObject.getDetectedObjects()));
                 }
+                sendEvents(events);
+            }
+            if (currentTick >= camera.getLastTick() + camera.getFrequency()) {
+                setPendingWork(0);
             }
 
             if (currentTick - camera.getFrequency() > camera.getLastTick()) {
@@ -63,15 +85,13 @@ public class CameraService extends MicroService {
         });
 
         // Subscribe to TerminatedBroadcast
-        subscribeBroadcast(TerminatedBroadcast.class, (TerminatedBroadcast terminated) -> {
-            if (!terminated.isSensor()) {
-                System.out.println(getName() + " received TerminatedBroadcast. Exiting...");
-                terminate();
-            }
+        subscribeBroadcast(TerminatedBroadcast.class, terminated -> !terminated.isSensor(), (TerminatedBroadcast terminated) -> {
+            System.out.println(getName() + " received TerminatedBroadcast. Exiting...");
+            terminate();
         });
         // Subscribe to CrashedBroadcast
         subscribeBroadcast(CrashedBroadcast.class, (crashed) -> {
-            FusionSlam fusionSlam = FusionSlam.getInstance();
+            FusionSlam fusionSlam = context.getFusionSlam();
             fusionSlam.addLastCameraFrame(this.camera.getCameraKey(), camera.getLastStampedDetectedObjects());
             System.out.println(getName() + " received CrashedBroadcast from: " + crashed.getFaultySensor());
             terminate();
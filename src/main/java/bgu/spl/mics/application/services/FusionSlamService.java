@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import bgu.spl.mics.MicroService;
+import bgu.spl.mics.application.SimulationContext;
 import bgu.spl.mics.application.messages.broadcast.CrashedBroadcast;
 import bgu.spl.mics.application.messages.broadcast.TerminatedBroadcast;
 import bgu.spl.mics.application.messages.broadcast.TickBroadcast;
@@ -24,7 +25,8 @@ import bgu.spl.mics.application.parser.JsonExporter;
  */
 public class FusionSlamService extends MicroService {
 
-    private final FusionSlam fusionSlam = FusionSlam.getInstance();
+    private final SimulationContext context;
+    private final FusionSlam fusionSlam;
     private Pose currentPose;
     private final List<TrackedObject> unhandledTrackedObjects;
 
@@ -34,7 +36,18 @@ public class FusionSlamService extends MicroService {
      * @param fusionSlam The FusionSLAM object responsible for managing the global map.
      */
     public FusionSlamService() {
-        super("FusionSlamService");
+        this(SimulationContext.shared());
+    }
+
+    /**
+     * Constructor for the FusionSlamService of the simulation {@code context}.
+     *
+     * @param context The simulation whose map this service updates and exports.
+     */
+    public FusionSlamService(SimulationContext context) {
+        super("FusionSlamService", context.getMessageBus());
+        this.context = context;
+        this.fusionSlam = context.getFusionSlam();
         this.unhandledTrackedObjects = new ArrayList<>();
     }
 
@@ -61,6 +74,8 @@ public class FusionSlamService extends MicroService {
                     unhandledTrackedObjects.add(obj);
                 }
             }
+            // Holds work while objects wait for their pose
+            setPendingWork(unhandledTrackedObjects.size());
         });
 
         // Subscribe to TickBroadcast
@@ -73,6 +88,7 @@ public class FusionSlamService extends MicroService {
                     unhandledTrackedObjects.remove(i);
                 }
             }
+            setPendingWork(unhandledTrackedObjects.size());
         });
 
         // Subscribe to TerminatedBroadcast
@@ -80,13 +96,13 @@ public class FusionSlamService extends MicroService {
             if (terminated.isSensor()) {
                 fusionSlam.increaseTerminatedSensorsCounter();
                 if (fusionSlam.getNumOfSensors() == fusionSlam.getTerminatedSensorsCounter()) {
-                    JsonExporter.exportStatistics(fusionSlam.getLandmarks());
+                    exportStatistics();
                     sendBroadcast(new TerminatedBroadcast(false));
                     terminate();
                 }
             } else {
                 System.out.println(getName() + " received TerminatedBroadcast. Exiting...");
-                JsonExporter.exportStatistics(fusionSlam.getLandmarks());
+                exportStatistics();
                 terminate();
             }
         });
@@ -94,9 +110,20 @@ public class FusionSlamService extends MicroService {
         // Subscribe to CrashedBroadcast
         subscribeBroadcast(CrashedBroadcast.class, (CrashedBroadcast crashed) -> {
             System.out.println(getName() + " received CrashedBroadcast from: " + crashed.getFaultySensor());
-            JsonExporter.exportErrorOutput(crashed.getError(), crashed.getFaultySensor(), fusionSlam.getLandmarks());
+            if (fusionSlam.claimExport()) {
+                JsonExporter.exportErrorOutput(crashed.getError(), crashed.getFaultySensor(), fusionSlam.getLandmarks(),
+                    fusionSlam, context.getStatisticalFolder(), context.getMessageBus().getDeliveryLags(), context.getOutputDir());
+            }
             sendBroadcast(new TerminatedBroadcast(false));
             terminate();
         });
     }
+
+    // The simulation may have ended on quiescence, and exported, already.
+    private void exportStatistics() {
+        if (fusionSlam.claimExport()) {
+            JsonExporter.exportStatistics(fusionSlam.getLandmarks(), context.getStatisticalFolder(),
+                context.getMessageBus().getDeliveryLags(), context.getOutputDir());
+        }
+    }
 }
@@ -3,6 +3,7 @@ package bgu.spl.mics.application.services;
 import java.util.List;
 
 import bgu.spl.mics.MicroService;
+import bgu.spl.mics.application.SimulationContext;
 import bgu.spl.mics.application.messages.broadcast.CrashedBroadcast;
 import bgu.spl.mics.application.messages.broadcast.TerminatedBroadcast;
 import bgu.spl.mics.application.messages.broadcast.TickBroadcast;
@@ -26,6 +27,7 @@ public class LiDarService extends MicroService {
 
     private final LiDarWorkerTracker liDarWorkerTracker;
     private final LiDarDataBase liDARDataBase;
+    private final SimulationContext context;
     private int currentTick;
 
     /**
@@ -35,9 +37,19 @@ public class LiDarService extends MicroService {
      * @param liDARDataBase      A LiDAR DataBase object that this service will use to retrieve cloud points.
      */
     public LiDarService(LiDarWorkerTracker liDarWorkerTracker) {
-        super("LiDarService" + liDarWorkerTracker.getId());
+        this(liDarWorkerTracker, SimulationContext.shared());
+    }
+
+    /**
+     * Constructor for a LiDarService of the simulation {@code context}.
+     *
+     * @param context The simulation whose bus, LiDAR database and map this service uses.
+     */
+    public LiDarService(LiDarWorkerTracker liDarWorkerTracker, SimulationContext context) {
+        super("LiDarService" + liDarWorkerTracker.getId(), context.getMessageBus());
         this.liDarWorkerTracker = liDarWorkerTracker;
-        this.liDARDataBase = LiDarDataBase.getInstance();
+        this.liDARDataBase = context.getLiDarDataBase();
+        this.context = context;
     }
 
     /**
@@ -50,11 +62,13 @@ public class LiDarService extends MicroService {
         // Subscribe to TickBroadcast
         subscribeBroadcast(TickBroadcast.class, (TickBroadcast tick) -> {
             currentTick = tick.getTick();
-            List<TrackedObject> matchTrackedObjects = liDarWorkerTracker.matchTrackedObjects(currentTick);
+            List<TrackedObject> matchTrackedObjects = liDarWorkerTracker.matchTrackedObjects(tick.getFromTick(), currentTick);
 
             if (!matchTrackedObjects.isEmpty()) {
                 sendEvent(new TrackedObjectsEvent(matchTrackedObjects));
             }
+            // Holds work while it has tracked objects to release
+            setPendingWork(liDarWorkerTracker.getTrackedObjects().size());
 
             if (currentTick - liDarWorkerTracker.getFrequency() > liDARDataBase.getLastTick()) {
                 System.out.println(getName() + " shutting down.");
@@ -67,25 +81,24 @@ public class LiDarService extends MicroService {
         // Subscribe to DetectObjectsEvent
         subscribeEvent(DetectObjectsEvent.class, (DetectObjectsEvent event) -> {
             liDarWorkerTracker.createTrackedObjects(liDARDataBase.getCloudPoints(), event);
-            List<TrackedObject> matchTrackedObjects = liDarWorkerTracker.matchTrackedObjects(currentTick);
+            List<TrackedObject> matchTrackedObjects = liDarWorkerTracker.matchDueBy(currentTick);
             if (liDarWorkerTracker.getStatus() == STATUS.ERROR) {
                 sendBroadcast(new CrashedBroadcast("LiDarTrackerWorker"+this.liDarWorkerTracker.getId(), ""));
             } else if (!matchTrackedObjects.isEmpty()) {
                 sendEvent(new TrackedObjectsEvent(matchTrackedObjects));
             }
+            setPendingWork(liDarWorkerTracker.getTrackedObjects().size());
         });
 
         // Subscribe to TerminatedBroadcast
-        subscribeBroadcast(TerminatedBroadcast.class, (TerminatedBroadcast terminated) -> {
-            if (!terminated.isSensor()) {
-                System.out.println(getName() + " received TerminatedBroadcast. Exiting...");
-                terminate();
-            }
+        subscribeBroadcast(TerminatedBroadcast.class, terminated -> !terminated.isSensor(), (TerminatedBroadcast terminated) -> {
+            System.out.println(getName() + " received TerminatedBroadcast. Exiting...");
+            terminate();
         });
 
         // Subscribe to CrashedBroadcast
         subscribeBroadcast(CrashedBroadcast.class, (crashed) -> {
-            FusionSlam fusionSlam = FusionSlam.getInstance();
+            FusionSlam fusionSlam = context.getFusionSlam();
             fusionSlam.addLastLidarFrame("LiDarTrackerWorker"+this.liDarWorkerTracker.getId(), liDarWorkerTracker.getLastTrackedObjects());
             System.out.println(getName() + " received CrashedBroadcast from: " + crashed.getFaultySensor());
             terminate();
@@ -1,6 +1,10 @@
 package bgu.spl.mics.application.services;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import bgu.spl.mics.MicroService;
+import bgu.spl.mics.application.SimulationContext;
 import bgu.spl.mics.application.messages.broadcast.CrashedBroadcast;
 import bgu.spl.mics.application.messages.broadcast.TerminatedBroadcast;
 import bgu.spl.mics.application.messages.broadcast.TickBroadcast;
@@ -22,22 +26,46 @@ public class PoseService extends MicroService {
      * @param gpsimu The GPSIMU object that provides the robot's pose data.
      */
     public PoseService(GPSIMU gpsimu) {
-        super("PoseService");
+        this(gpsimu, SimulationContext.shared());
+    }
+
+    /**
+     * Constructor for a PoseService of the simulation {@code context}.
+     *
+     * @param context The simulation whose bus the poses go through.
+     */
+    public PoseService(GPSIMU gpsimu, SimulationContext context) {
+        super("PoseService", context.getMessageBus());
         this.gpsimu = gpsimu;
     }
 
     /**
      * Initializes the PoseService.
-     * Subscribes to TickBroadcast and sends PoseEvents at every tick based on the current pose.
+     * Subscribes to TickBroadcast and sends PoseEvents at every tick based on the current pose,
+     * one for each tick covered by a coalesced TickBroadcast.
      */
     @Override
     protected void initialize() {
+        // Holds work until its last pose is sent
+        setPendingWork(gpsimu.getPoseList().isEmpty() ? 0 : 1);
+
         subscribeBroadcast(TickBroadcast.class, (TickBroadcast tick) -> {
             int currentTick = tick.getTick();
-            gpsimu.setCurrentTick(currentTick);
-            Pose currentPose = gpsimu.getCurrentPose();
-            if (currentPose != null) {
-                sendEvent(new PoseEvent(currentPose));
+            List<PoseEvent> events = new ArrayList<>();
+            for (int t = tick.getFromTick(); t <= currentTick; t++) {
+                gpsimu.setCurrentTick(t);
+                Pose currentPose = gpsimu.getCurrentPose();
+                if (currentPose != null) {
+                    events.add(new PoseEvent(currentPose));
+                }
+            }
+            if (events.size() == 1) {
+                sendEvent(events.get(0));
+            } else if (!events.isEmpty()) {
+                sendEvents(events);
+            }
+            if (currentTick >= gpsimu.getLastTick()) {
+                setPendingWork(0);
             }
             if (gpsimu.getLastTick() < currentTick) {
                 gpsimu.setStatus(STATUS.DOWN);
@@ -46,11 +74,9 @@ public class PoseService extends MicroService {
             }
         });
 
-        subscribeBroadcast(TerminatedBroadcast.class, (TerminatedBroadcast terminated) -> {
-            if (!terminated.isSensor()) {
-                System.out.println(getName() + " received TerminatedBroadcast. Exiting...");
-                terminate();
-            }
+        subscribeBroadcast(TerminatedBroadcast.class, terminated -> !terminated.isSensor(), (TerminatedBroadcast terminated) -> {
+            System.out.println(getName() + " received TerminatedBroadcast. Exiting...");
+            terminate();
         });
 
         // Subscribe to CrashedBroadcast
@@ -1,10 +1,14 @@
 package bgu.spl.mics.application.services;
 
+import java.util.NavigableSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import bgu.spl.mics.MicroService;
+import bgu.spl.mics.StartupCoordinator;
+import bgu.spl.mics.application.SimulationContext;
+import bgu.spl.mics.application.TickMode;
 import bgu.spl.mics.application.messages.broadcast.TerminatedBroadcast;
 import bgu.spl.mics.application.messages.broadcast.TickBroadcast;
 import bgu.spl.mics.application.objects.StatisticalFolder;
@@ -12,36 +16,112 @@ import bgu.spl.mics.application.objects.StatisticalFolder;
 /**
  * TimeService acts as the global timer for the system, broadcasting TickBroadcast messages
  * at regular intervals and controlling the simulation's duration.
+ * Tick n is due n - 1 intervals after the first, however late the previous ticks
+ * went out, so a late tick shortens the next interval rather than delaying all
+ * the following ticks; each tick carries the time it was due.
+ * In the {@link TickMode#AS_FAST_AS_POSSIBLE} mode the interval is instead the time
+ * the services take to handle everything the previous tick caused; the
+ * {@link TickMode#DISCRETE_EVENT} mode also skips the ticks at which nothing happens.
  */
 public class TimeService extends MicroService {
-    private final int TickTime; // Duration of each tick in milliseconds
+    private final int TickTime; // Duration of each tick in tickTimeUnit
+    private final TimeUnit tickTimeUnit;
     private final int Duration; // Total number of ticks before termination
     private final ScheduledExecutorService scheduler;
+    private final TickMode tickMode;
+    private final boolean endOnQuiescence;
+    private final SimulationContext context;
     /**
      * Constructor for TimeService.
      *
-     * @param TickTime  The duration of each tick in milliseconds.
+     * @param TickTime  The duration of each tick in seconds.
      * @param Duration  The total number of ticks before the service terminates.
      */
     public TimeService(int TickTime, int Duration) {
-        super("TimeService");
+        this(TickTime, Duration, SimulationContext.shared());
+    }
+
+    /**
+     * Constructor for a TimeService of the simulation {@code context}.
+     *
+     * @param context   The simulation whose bus the ticks go through and whose runtime is counted.
+     */
+    public TimeService(int TickTime, int Duration, SimulationContext context) {
+        this(TickTime, TimeUnit.SECONDS, Duration, TickMode.WALL_CLOCK, context);
+    }
+
+    /**
+     * Constructor for a TimeService of the simulation {@code context} pacing the ticks by {@code tickMode}.
+     *
+     * @param tickTimeUnit The unit of {@code TickTime}.
+     * @param tickMode     How the ticks are paced; all but WALL_CLOCK need the bus of
+     *                     {@code context} to track the messages in flight.
+     */
+    public TimeService(int TickTime, TimeUnit tickTimeUnit, int Duration, TickMode tickMode, SimulationContext context) {
+        this(TickTime, tickTimeUnit, Duration, tickMode, false, context);
+    }
+
+    /**
+     * Constructor for a TimeService of a simulation that may end before its duration.
+     *
+     * @param endOnQuiescence Whether the simulation ends once its bus is quiescent, in
+     *                        which case every tick is counted before it is sent, so
+     *                        the statistics exported on that tick include it.
+     */
+    public TimeService(int TickTime, TimeUnit tickTimeUnit, int Duration, TickMode tickMode, boolean endOnQuiescence,
+                       SimulationContext context) {
+        super("TimeService", context.getMessageBus());
         this.TickTime = TickTime;
+        this.tickTimeUnit = tickTimeUnit;
         this.Duration = Duration;
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.tickMode = tickMode;
+        this.endOnQuiescence = endOnQuiescence;
+        this.context = context;
     }
 
     @Override
     protected void initialize() {
-        StatisticalFolder stats = StatisticalFolder.getInstance();
-        // Schedule periodic tick broadcasts
+        StatisticalFolder stats = context.getStatisticalFolder();
+        if (tickMode == TickMode.AS_FAST_AS_POSSIBLE) {
+            scheduler.execute(() -> runAsFastAsPossible(stats));
+        } else if (tickMode == TickMode.DISCRETE_EVENT) {
+            NavigableSet<Integer> activeTicks = context.getActiveTicks(Duration);
+            scheduler.execute(() -> runDiscreteEvents(stats, activeTicks));
+        } else {
+            scheduleAtFixedRate(stats);
+        }
+
+        subscribeBroadcast(TerminatedBroadcast.class, terminated -> !terminated.isSensor(), (TerminatedBroadcast terminated) -> {
+            System.out.println(getName() + " received TerminatedBroadcast. Exiting...");
+            if (tickMode == TickMode.WALL_CLOCK) {
+                scheduler.shutdown();
+            } else {
+                // Stops the tick loop waiting for the bus.
+                scheduler.shutdownNow();
+            }
+            terminate();
+        });
+    }
+
+    private void scheduleAtFixedRate(StatisticalFolder stats) {
+        long period = tickTimeUnit.toNanos(TickTime);
+        long start = System.nanoTime();
+        // Schedule periodic tick broadcasts; a fixed rate keeps each run due at start + n * period.
         scheduler.scheduleAtFixedRate(new Runnable() {
             private int currentTick = 1;
 
             @Override
             public void run() {
                 if (currentTick <= Duration) {
-                    sendBroadcast(new TickBroadcast(currentTick));
-                    stats.incrementRuntime();
+                    // Counted first when the export may happen during the tick, so it includes it.
+                    if (endOnQuiescence) {
+                        stats.incrementRuntime();
+                    }
+                    sendTick(new TickBroadcast(currentTick, currentTick, start + (currentTick - 1) * period));
+                    if (!endOnQuiescence) {
+                        stats.incrementRuntime();
+                    }
                     currentTick++;
                 } else {
                     // Send TerminatedBroadcast and shut down
@@ -50,14 +130,59 @@ public class TimeService extends MicroService {
                     terminate();
                 }
             }
-        }, 0, TickTime, TimeUnit.SECONDS);
+        }, 0, period, TimeUnit.NANOSECONDS);
+    }
 
-        subscribeBroadcast(TerminatedBroadcast.class, (TerminatedBroadcast terminated) -> {
-            if (!terminated.isSensor()) {
-                System.out.println(getName() + " received TerminatedBroadcast. Exiting...");
-                scheduler.shutdown();
-                terminate();
+    // Sends each tick once the bus is quiescent, until the duration is over or the simulation terminated.
+    private void runAsFastAsPossible(StatisticalFolder stats) {
+        try {
+            for (int currentTick = 1; currentTick <= Duration; currentTick++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                // Counted first, so the statistics a service exports on this tick include it.
+                stats.incrementRuntime();
+                sendTick(new TickBroadcast(currentTick));
+                context.getMessageBus().awaitQuiescence();
             }
-        });
+        } catch (InterruptedException e) {
+            return;
+        }
+        terminateOnTime();
+    }
+
+    // As runAsFastAsPossible, but each broadcast covers the ticks since the previous active one.
+    private void runDiscreteEvents(StatisticalFolder stats, NavigableSet<Integer> activeTicks) {
+        try {
+            int fromTick = 1;
+            for (int currentTick : activeTicks) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                stats.addRuntime(currentTick - fromTick + 1);
+                sendTick(new TickBroadcast(fromTick, currentTick));
+                fromTick = currentTick + 1;
+                context.getMessageBus().awaitQuiescence();
+            }
+        } catch (InterruptedException e) {
+            return;
+        }
+        terminateOnTime();
+    }
+
+    private void sendTick(TickBroadcast tick) {
+        sendBroadcast(tick);
+        StartupCoordinator coordinator = context.getStartupCoordinator();
+        if (coordinator != null) {
+            coordinator.firstTickSent();
+        }
+    }
+
+    private void terminateOnTime() {
+        if (!Thread.currentThread().isInterrupted()) {
+            sendBroadcast(new TerminatedBroadcast(false));
+            scheduler.shutdown();
+            terminate();
+        }
     }
 }
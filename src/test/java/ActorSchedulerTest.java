@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.ActorScheduler;
+import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.MessageBus;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.OneWayEvent;
+
+/**
+ * Test suite for running MicroServices as actors on an ActorScheduler.
+ */
+class ActorSchedulerTest {
+
+    static class ActorTestEvent implements OneWayEvent<Integer> {
+        final int sequence;
+
+        ActorTestEvent(int sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    static class ActorStopBroadcast implements Broadcast { }
+
+    /**
+     * Throws while handling every event of an even sequence number.
+     */
+    static class FlakyConsumer extends MicroService {
+        final List<Integer> received = new ArrayList<>();
+        final CountDownLatch initialized = new CountDownLatch(1);
+
+        FlakyConsumer(MessageBus bus) {
+            super("FlakyActorConsumer", bus);
+        }
+
+        @Override
+        protected void initialize() {
+            subscribeEvent(ActorTestEvent.class, event -> {
+                if (event.sequence % 2 == 0) {
+                    throw new IllegalStateException("Failed on event " + event.sequence);
+                }
+                received.add(event.sequence);
+            });
+            subscribeBroadcast(ActorStopBroadcast.class, stop -> terminate());
+            initialized.countDown();
+        }
+    }
+
+    /**
+     * Fails to initialize.
+     */
+    static class BrokenService extends MicroService {
+        BrokenService(MessageBus bus) {
+            super("BrokenActor", bus);
+        }
+
+        @Override
+        protected void initialize() {
+            throw new IllegalStateException("Failed to initialize");
+        }
+    }
+
+    /**
+     * Records the events it receives and the largest number of threads that
+     * ran its callbacks at the same time.
+     */
+    static class Consumer extends MicroService {
+        final List<Integer> received = new ArrayList<>();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch initialized = new CountDownLatch(1);
+
+        Consumer() {
+            super("ActorConsumer");
+        }
+
+        @Override
+        protected void initialize() {
+            subscribeEvent(ActorTestEvent.class, event -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                received.add(event.sequence);
+                running.decrementAndGet();
+            });
+            subscribeBroadcast(ActorStopBroadcast.class, stop -> terminate());
+            initialized.countDown();
+        }
+    }
+
+    /**
+     * //@PRE: A consumer actor with a batch size of 4 runs on a pool of 2 threads,
+     *        and 1,000 events are sent to it from another thread.
+     * //@POST: It handles all of them in order, never on two threads at once, and
+     *         the scheduler terminates once the consumer has stopped.
+     */
+    @Test
+    void testActorHandlesMessagesInOrder() throws InterruptedException {
+        ActorScheduler scheduler = new ActorScheduler(2, 4);
+        Consumer consumer = new Consumer();
+        scheduler.execute(consumer);
+        MessageBusImpl bus = MessageBusImpl.getInstance();
+        assertTrue(consumer.initialized.await(10, TimeUnit.SECONDS), "The actor should start on the pool.");
+
+        for (int i = 0; i < 1000; i++) {
+            bus.sendEvent(new ActorTestEvent(i));
+        }
+        bus.sendBroadcast(new ActorStopBroadcast());
+        scheduler.shutdown();
+
+        assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS), "The scheduler should terminate.");
+        assertFalse(bus.isRegistered(consumer), "A terminated actor should unregister.");
+        assertEquals(1000, consumer.received.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, consumer.received.get(i), "Events should be handled in order.");
+        }
+        assertEquals(1, consumer.maxRunning.get(), "An actor should never run on two threads at once.");
+    }
+
+    /**
+     * //@PRE: An actor whose callback throws on every other event is sent 10 events,
+     *        on a pool of 1 thread with a batch size of 4.
+     * //@POST: It still handles the events after each failure, then stops, and the
+     *         scheduler terminates.
+     */
+    @Test
+    void testActorKeepsRunningAfterCallbackThrows() throws InterruptedException {
+        ActorScheduler scheduler = new ActorScheduler(1, 4);
+        MessageBusImpl bus = new MessageBusImpl();
+        FlakyConsumer consumer = new FlakyConsumer(bus);
+        scheduler.execute(consumer);
+        assertTrue(consumer.initialized.await(10, TimeUnit.SECONDS), "The actor should start on the pool.");
+
+        for (int i = 0; i < 10; i++) {
+            bus.sendEvent(new ActorTestEvent(i));
+        }
+        bus.sendBroadcast(new ActorStopBroadcast());
+        scheduler.shutdown();
+
+        assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS), "A failing callback should not stall the actor.");
+        assertEquals(Arrays.asList(1, 3, 5, 7, 9), consumer.received);
+        assertFalse(bus.isRegistered(consumer));
+    }
+
+    /**
+     * //@PRE: A service whose initialize throws is started as an actor.
+     * //@POST: It is unregistered, and the scheduler terminates once shut down.
+     */
+    @Test
+    void testSchedulerTerminatesWhenInitializeThrows() throws InterruptedException {
+        ActorScheduler scheduler = new ActorScheduler(1, 4);
+        MessageBusImpl bus = new MessageBusImpl();
+        BrokenService broken = new BrokenService(bus);
+        scheduler.execute(broken);
+        scheduler.shutdown();
+
+        assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS), "A failed actor should not keep the scheduler alive.");
+        assertFalse(bus.isRegistered(broken));
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import bgu.spl.mics.application.BatchRunner;
+
+/**
+ * Test suite for running several simulations in one JVM.
+ */
+class BatchRunnerTest {
+
+    private final Gson gson = new Gson();
+
+    @TempDir
+    Path dir;
+
+    // Copies the inputs of an example, running as fast as possible instead of one tick a second.
+    private Path copyExample(String example, String name) throws IOException {
+        Path target = Files.createDirectories(dir.resolve(name));
+        try (Stream<Path> files = Files.list(Paths.get(example))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().contains("output")) {
+                    Files.copy(file, target.resolve(file.getFileName()));
+                }
+            }
+        }
+        Path config = target.resolve("configuration_file.json");
+        JsonObject json = gson.fromJson(new String(Files.readAllBytes(config), StandardCharsets.UTF_8), JsonObject.class);
+        json.addProperty("TickMode", "AS_FAST_AS_POSSIBLE");
+        Files.write(config, gson.toJson(json).getBytes(StandardCharsets.UTF_8));
+        return config;
+    }
+
+    private static String runMain(String... args) throws Exception {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PrintStream capture = new PrintStream(printed, true, "UTF-8");
+        System.setOut(capture);
+        System.setErr(capture);
+        try {
+            BatchRunner.main(args);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        return new String(printed.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * //@PRE: The two example inputs, run as fast as possible, two at a time.
+     * //@POST: Each run prints its output in a block of its own, and the summary,
+     *         printed last with nothing in between, reports the ticks and landmarks
+     *         of the first example and a completed run of the second.
+     */
+    @Test
+    void testTwoExamplesSummary() throws Exception {
+        Path first = copyExample("example input", "example1");
+        Path second = copyExample("example_input_2", "example2");
+
+        String printed = runMain("--parallelism", "2", dir.toString());
+
+        List<String> lines = Arrays.asList(printed.split("\\R"));
+        int header = lines.indexOf(lines.stream().filter(line -> line.startsWith("Configuration ")).findFirst().orElse(""));
+        assertTrue(header > 0, "The summary should follow the output of the runs:\n" + printed);
+        assertEquals(4, lines.size() - header, "The summary should have a header, a row per run and a total:\n" + printed);
+        String[] firstRow = lines.get(header + 1).trim().split("\\s+");
+        assertEquals(first.toString(), firstRow[0]);
+        assertEquals("21", firstRow[2], "The first example should run 21 ticks.");
+        assertEquals("7", firstRow[3], "The first example should map 7 landmarks.");
+        assertTrue(lines.get(header + 2).startsWith(second.toString()) && !lines.get(header + 2).contains("FAILED"),
+            "The second example should complete: " + lines.get(header + 2));
+        assertTrue(lines.get(header + 3).startsWith("2 runs completed"));
+        for (Path config : Arrays.asList(first, second)) {
+            int block = lines.indexOf("==> " + config + " <==");
+            assertTrue(block >= 0 && block < header, "Each run should print a block of its own.");
+            assertTrue(Files.exists(config.resolveSibling("output_file.json")));
+        }
+    }
+
+    /**
+     * //@PRE: --parallelism is given without a number, last or before a path.
+     * //@POST: A usage error is printed and nothing runs.
+     */
+    @Test
+    void testParallelismWithoutValue() throws Exception {
+        Path config = copyExample("example input", "example1");
+
+        assertTrue(runMain(config.toString(), "--parallelism").contains("Usage:"));
+        assertTrue(runMain("--parallelism", config.toString()).contains("Usage:"));
+        assertTrue(!Files.exists(config.resolveSibling("output_file.json")), "No simulation should have run.");
+    }
+
+    /**
+     * //@PRE: No configuration to run.
+     * //@POST: run returns no result and leaves System.out as it was.
+     */
+    @Test
+    void testRunNothing() throws Exception {
+        PrintStream out = System.out;
+        assertEquals(Collections.emptyList(), BatchRunner.run(Collections.emptyList(), 2));
+        assertTrue(System.out == out);
+    }
+}
@@ -82,4 +82,20 @@ class CameraTest {
 
     }
 
+    /**
+     * //@PRE: A coalesced range of ticks [1, 7] covers the detections of time 2 and 4.
+     * //@POST: Both are returned in time order and the status becomes ERROR, as if
+     *         ticks 4 and 6 had been processed one by one.
+     */
+    @Test
+    void testGetStampedDetectedObjectsInRange() {
+        List<StampedDetectedObjects> result = camera.getStampedDetectedObjects(1, 7);
+
+        assertEquals(2, result.size(), "Both time stamps are due within the range.");
+        assertEquals(2, result.get(0).getTime());
+        assertEquals(4, result.get(1).getTime());
+        assertEquals(STATUS.ERROR, camera.getStatus(), "The erroneous detection should still be noticed.");
+        assertEquals(2, camera.getLastStampedDetectedObjects().getTime(), "The last frame is the last error-free one.");
+    }
+
 }
@@ -0,0 +1,155 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+
+import bgu.spl.mics.application.parser.ChunkedJsonParser;
+
+/**
+ * Test suite for parsing JSON files in chunks.
+ */
+class ChunkedJsonParserTest {
+
+    static class Entry {
+        String id;
+        int time;
+        List<List<Double>> cloudPoints;
+    }
+
+    /**
+     * Counts the instances Gson creates.
+     */
+    static class CountedEntry {
+        static final AtomicInteger created = new AtomicInteger();
+        String id;
+
+        CountedEntry() {
+            created.incrementAndGet();
+        }
+    }
+
+    //@INV: parser splits arrays into chunks of about 100 bytes, parsed on 3 threads
+    private ExecutorService executor;
+    private ChunkedJsonParser parser;
+    private final Gson gson = new Gson();
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+        parser = new ChunkedJsonParser(executor, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static String entries(int count) {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "  " : ",\n  ")
+                .append("{\"id\": \"Wall_").append(i).append(" [\\\"x\\\"] {}\", \"time\": ").append(i)
+                .append(", \"cloudPoints\": [[").append(i).append(".5, -1.25, 0.104]]}");
+        }
+        return json.append("\n]").toString();
+    }
+
+    private Path write(String name, String json) throws IOException {
+        return Files.write(dir.resolve(name), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * //@PRE: A file holding an array of 500 entries, whose strings hold brackets,
+     *        braces and escaped quotes.
+     * //@POST: Parsed in chunks, it yields the entries Gson parses at once, in order.
+     */
+    @Test
+    void testArrayMatchesGson() throws IOException {
+        String json = entries(500);
+        List<Entry> expected = gson.fromJson(json, new TypeToken<List<Entry>>() {}.getType());
+        List<Entry> parsed = parser.parseArray(write("lidar.json", json), Entry.class, entry -> entry);
+        assertEquals(gson.toJson(expected), gson.toJson(parsed));
+    }
+
+    /**
+     * //@PRE: A file holding an object of three arrays, one of them empty.
+     * //@POST: Parsed in chunks, it yields the arrays Gson parses at once, keys in file order.
+     */
+    @Test
+    void testObjectOfArraysMatchesGson() throws IOException {
+        String json = "{\"camera2\": " + entries(200) + ", \"camera1\": " + entries(3) + ", \"camera3\": []}";
+        Map<String, List<Entry>> expected = gson.fromJson(json, new TypeToken<Map<String, List<Entry>>>() {}.getType());
+        Map<String, List<Entry>> parsed = parser.parseObjectOfArrays(write("camera.json", json), Entry.class);
+        assertEquals(gson.toJson(expected), gson.toJson(parsed));
+    }
+
+    /**
+     * //@PRE: A file holding an array with a trailing comma and a comment, which only a lenient parser accepts.
+     * //@POST: It is parsed as Gson parses it; a missing file is reported as such.
+     */
+    @Test
+    void testLenientInputAndMissingFile() throws IOException {
+        String json = "[{\"id\": \"a\", \"time\": 1}, // the last entry\n {\"id\": \"b\", \"time\": 2},]";
+        List<Entry> expected = gson.fromJson(json, new TypeToken<List<Entry>>() {}.getType());
+        List<Entry> parsed = parser.parseArray(write("lenient.json", json), Entry.class, entry -> entry);
+        assertEquals(gson.toJson(expected), gson.toJson(parsed));
+
+        assertThrows(FileNotFoundException.class,
+            () -> parser.parseArray(dir.resolve("missing.json"), Entry.class, entry -> entry));
+    }
+
+    /**
+     * //@PRE: An object of arrays with a duplicate key, and one followed by another
+     *        object, parsed on a thread kept busy until the split gave up.
+     * //@POST: Both are rejected as Gson rejects them, and the chunks submitted
+     *         before the split gave up are never parsed.
+     */
+    @Test
+    void testObjectGsonRejects() throws Exception {
+        Type mapType = new TypeToken<Map<String, List<CountedEntry>>>() {}.getType();
+        for (String json : Arrays.asList(
+                "{\"camera1\": [{\"id\": \"a\"}], \"camera2\": [{\"id\": \"b\"}], \"camera1\": [{\"id\": \"c\"}]}",
+                "{\"camera1\": [{\"id\": \"a\"}], \"camera2\": [{\"id\": \"b\"}]} {\"camera3\": []}")) {
+            CountedEntry.created.set(0);
+            assertThrows(JsonSyntaxException.class, () -> gson.fromJson(json, mapType));
+            int createdByGson = CountedEntry.created.getAndSet(0);
+
+            ExecutorService busy = Executors.newSingleThreadExecutor();
+            CountDownLatch release = new CountDownLatch(1);
+            // Bounded, so chunks left running end up parsed rather than blocking the parse forever.
+            busy.submit(() -> release.await(5, TimeUnit.SECONDS));
+            Path file = write("camera.json", json);
+            assertThrows(JsonSyntaxException.class,
+                () -> new ChunkedJsonParser(busy, 100).parseObjectOfArrays(file, CountedEntry.class));
+            release.countDown();
+            busy.shutdown();
+            assertTrue(busy.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(createdByGson, CountedEntry.created.get(), "Only the fallback to Gson should parse entries.");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.Event;
+import bgu.spl.mics.Future;
+import bgu.spl.mics.MessageBus;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.StartupCoordinator;
+import bgu.spl.mics.application.ExecutionMode;
+
+/**
+ * Test suite for the ways the runner executes its MicroServices.
+ */
+class ExecutionModeTest {
+
+    static class DoubleEvent implements Event<Integer> {
+        final int value;
+
+        DoubleEvent(int value) {
+            this.value = value;
+        }
+    }
+
+    static class StartBroadcast implements Broadcast { }
+
+    static class StopBroadcast implements Broadcast { }
+
+    /**
+     * Answers every DoubleEvent with twice its value, until stopped.
+     */
+    static class Doubler extends MicroService {
+        Doubler(String name, MessageBus bus) {
+            super(name, bus);
+        }
+
+        @Override
+        protected void initialize() {
+            subscribeEvent(DoubleEvent.class, event -> complete(event, 2 * event.value));
+            subscribeBroadcast(StopBroadcast.class, stop -> terminate());
+        }
+    }
+
+    /**
+     * Once started, sends 10 DoubleEvents and waits for each answer, adding them to
+     * {@code sum}, then stops; records the thread it ran on.
+     */
+    static class Requester extends MicroService {
+        private final AtomicInteger sum;
+        private final CountDownLatch done;
+        volatile Thread thread;
+
+        Requester(String name, MessageBus bus, AtomicInteger sum, CountDownLatch done) {
+            super(name, bus);
+            this.sum = sum;
+            this.done = done;
+        }
+
+        @Override
+        protected void initialize() {
+            thread = Thread.currentThread();
+            subscribeBroadcast(StartBroadcast.class, start -> {
+                for (int i = 0; i < 10; i++) {
+                    Future<Integer> answer = sendEvent(new DoubleEvent(i));
+                    Integer doubled = answer == null ? null : answer.get(10, TimeUnit.SECONDS);
+                    sum.addAndGet(doubled == null ? 0 : doubled);
+                }
+                done.countDown();
+                terminate();
+            });
+        }
+    }
+
+    // Runs 10 Doublers and 1,000 Requesters blocking on their answers on an executor of mode; returns a Requester's thread.
+    private static Thread runRequests(ExecutionMode mode) throws InterruptedException {
+        MessageBusImpl bus = new MessageBusImpl();
+        AtomicInteger sum = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1000);
+        List<MicroService> services = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            services.add(new Doubler("Doubler" + i, bus));
+        }
+        for (int i = 0; i < 1000; i++) {
+            services.add(new Requester("Requester" + i, bus, sum, done));
+        }
+        StartupCoordinator coordinator = new StartupCoordinator(services.size());
+        services.forEach(service -> service.setStartupCoordinator(coordinator));
+        ExecutorService executor = mode.createExecutor(services.size());
+        services.forEach(executor::execute);
+
+        coordinator.awaitReady();
+        bus.sendBroadcast(new StartBroadcast());
+        assertTrue(done.await(30, TimeUnit.SECONDS), "Every requester should get its answers.");
+        bus.sendBroadcast(new StopBroadcast());
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "Every service should stop.");
+        assertEquals(1000 * 2 * 45, sum.get(), "Every answer should be twice its request.");
+        return ((Requester) services.get(services.size() - 1)).thread;
+    }
+
+    /**
+     * //@PRE: A Java 21 runtime; 10 services answering events and 1,000 services
+     *        each waiting for 10 answers in turn run on VIRTUAL threads.
+     * //@POST: Every answer arrives, every service stops, and they ran on virtual threads.
+     */
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void testVirtualRunsBlockingServices() throws Exception {
+        assertTrue(ExecutionMode.VIRTUAL.isAvailable());
+        Thread thread = runRequests(ExecutionMode.VIRTUAL);
+        assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread),
+            "The services should run on virtual threads.");
+    }
+
+    /**
+     * //@PRE: A runtime older than Java 21.
+     * //@POST: VIRTUAL is reported unavailable, and creating its executor fails.
+     */
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void testVirtualUnavailableBeforeJava21() {
+        assertFalse(ExecutionMode.VIRTUAL.isAvailable());
+        assertThrows(UnsupportedOperationException.class, () -> ExecutionMode.VIRTUAL.createExecutor(1));
+    }
+}
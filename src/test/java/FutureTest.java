@@ -0,0 +1,123 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.Future;
+
+/**
+ * Test suite for the blocking and continuation APIs of Future.
+ */
+class FutureTest {
+
+    /**
+     * //@PRE: A continuation and a transformation are registered on an unresolved Future.
+     * //@POST: Both run once the Future is resolved; continuations registered
+     *         after resolution run immediately.
+     */
+    @Test
+    void testOnCompleteAndThenApply() {
+        Future<Integer> future = new Future<>();
+        AtomicReference<Integer> seen = new AtomicReference<>();
+        future.onComplete(seen::set);
+        Future<String> mapped = future.thenApply(value -> "tick" + value);
+        assertFalse(mapped.isDone(), "The mapped Future should wait for its source.");
+
+        future.resolve(7);
+
+        assertEquals(7, seen.get());
+        assertEquals("tick7", mapped.get());
+        AtomicReference<Integer> late = new AtomicReference<>();
+        future.onComplete(late::set);
+        assertEquals(7, late.get(), "A late continuation should run immediately.");
+    }
+
+    /**
+     * //@PRE: Three unresolved Futures are combined with allOf and anyOf.
+     * //@POST: anyOf resolves with the first result; allOf resolves only after
+     *         the last one, with the results in order.
+     */
+    @Test
+    void testAllOfAndAnyOf() {
+        Future<String> f1 = new Future<>();
+        Future<String> f2 = new Future<>();
+        Future<String> f3 = new Future<>();
+        List<Future<String>> futures = Arrays.asList(f1, f2, f3);
+        Future<List<String>> all = Future.allOf(futures);
+        Future<String> any = Future.anyOf(futures);
+
+        f2.resolve("b");
+        assertEquals("b", any.get());
+        f3.resolve("c");
+        assertFalse(all.isDone(), "allOf should wait for every Future.");
+        f1.resolve("a");
+        assertEquals(Arrays.asList("a", "b", "c"), all.get());
+    }
+
+    /**
+     * //@PRE: A Future is never resolved.
+     * //@POST: get(timeout) returns null after waiting at least the full timeout.
+     */
+    @Test
+    void testGetWithTimeoutWaitsFullTimeout() {
+        Future<String> future = new Future<>();
+        long start = System.nanoTime();
+        assertNull(future.get(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50), "get should not return early.");
+    }
+
+    /**
+     * //@PRE: A Future has a continuation that throws, registered before another one,
+     *        and transformations whose functions throw.
+     * //@POST: resolve does not throw, the other continuation still runs, and the
+     *         transformed Futures are resolved with null.
+     */
+    @Test
+    void testThrowingContinuationsAndFunctions() {
+        Future<Integer> future = new Future<>();
+        AtomicReference<Integer> seen = new AtomicReference<>();
+        future.onComplete(value -> {
+            throw new IllegalStateException("continuation failure");
+        });
+        future.onComplete(seen::set);
+        Future<String> mapped = future.thenApply(value -> {
+            throw new IllegalStateException("fn failure");
+        });
+        Future<String> composed = future.thenCompose(value -> {
+            throw new IllegalStateException("fn failure");
+        });
+
+        future.resolve(3);
+
+        assertEquals(3, seen.get(), "A throwing continuation should not skip the next one.");
+        assertTrue(mapped.isDone(), "thenApply should resolve even if its function throws.");
+        assertNull(mapped.get());
+        assertTrue(composed.isDone(), "thenCompose should resolve even if its function throws.");
+        assertNull(composed.get());
+        Future<String> late = future.thenApply(value -> {
+            throw new IllegalStateException("fn failure");
+        });
+        assertTrue(late.isDone(), "A late transformation should resolve even if its function throws.");
+    }
+
+    /**
+     * //@PRE: anyOf is given an empty list, and a list holding only nulls.
+     * //@POST: Both are resolved with null at once.
+     */
+    @Test
+    void testAnyOfWithoutFutures() {
+        Future<String> empty = Future.anyOf(Collections.<Future<String>>emptyList());
+        Future<String> nulls = Future.anyOf(Arrays.<Future<String>>asList(null, null));
+        assertTrue(empty.isDone());
+        assertNull(empty.get());
+        assertTrue(nulls.isDone(), "anyOf over null entries only should not wait forever.");
+        assertNull(nulls.get());
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.application.messages.events.DetectObjectsEvent;
+import bgu.spl.mics.application.objects.CloudPoint;
+import bgu.spl.mics.application.objects.DetectedObject;
+import bgu.spl.mics.application.objects.LiDarWorkerTracker;
+import bgu.spl.mics.application.objects.StampedCloudPoints;
+import bgu.spl.mics.application.objects.StatisticalFolder;
+import bgu.spl.mics.application.objects.TrackedObject;
+
+/**
+ * Test suite for releasing the objects a LiDAR worker tracks.
+ */
+class LiDarWorkerTrackerTest {
+
+    //@INV: tracker has a frequency of 1; cloudPoints hold a wall detected at time 2
+    private LiDarWorkerTracker tracker;
+    private List<StampedCloudPoints> cloudPoints;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new LiDarWorkerTracker(1, 1, new StatisticalFolder());
+        cloudPoints = Collections.singletonList(
+            new StampedCloudPoints("Wall_1", 2, Arrays.asList(new CloudPoint(0.5, 1.5))));
+    }
+
+    /**
+     * //@PRE: Ticks 1 to 4 are handled at once, before the detection of time 2,
+     *        due at tick 3, reaches the tracker.
+     * //@POST: The object is released when the detection arrives at tick 4,
+     *         instead of waiting for tick 3, which already passed.
+     */
+    @Test
+    void testDetectionAfterCoalescedTicksIsReleased() {
+        assertTrue(tracker.matchTrackedObjects(1, 4).isEmpty(), "Nothing is tracked yet.");
+
+        tracker.createTrackedObjects(cloudPoints,
+            new DetectObjectsEvent(4, 2, Collections.singletonList(new DetectedObject("Wall_1", "Wall"))));
+        List<TrackedObject> released = tracker.matchDueBy(4);
+
+        assertEquals(1, released.size(), "An object due before the current tick should be released.");
+        assertEquals("Wall_1", released.get(0).getId());
+        assertTrue(tracker.getTrackedObjects().isEmpty(), "A released object should no longer be tracked.");
+    }
+
+    /**
+     * //@PRE: A detection of time 2 is tracked at tick 2.
+     * //@POST: It is held until tick 3, when it is due, and released only once.
+     */
+    @Test
+    void testDetectionIsHeldUntilDue() {
+        tracker.createTrackedObjects(cloudPoints,
+            new DetectObjectsEvent(2, 2, Collections.singletonList(new DetectedObject("Wall_1", "Wall"))));
+
+        assertTrue(tracker.matchDueBy(2).isEmpty(), "An object should not be released before it is due.");
+        assertEquals(1, tracker.matchDueBy(3).size());
+        assertTrue(tracker.matchDueBy(4).isEmpty(), "An object should be released only once.");
+    }
+}
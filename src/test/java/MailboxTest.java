@@ -0,0 +1,216 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.BackpressurePolicy;
+import bgu.spl.mics.Lane;
+import bgu.spl.mics.Mailbox;
+import bgu.spl.mics.Message;
+import bgu.spl.mics.QueueMailbox;
+import bgu.spl.mics.RingBufferMailbox;
+import bgu.spl.mics.WaitStrategy;
+import bgu.spl.mics.application.messages.broadcast.TickBroadcast;
+
+/**
+ * Test suite for the mailbox implementations and their backpressure policies.
+ */
+class MailboxTest {
+
+    /**
+     * Minimal mock Message.
+     */
+    static class TestMessage implements Message { }
+
+    /**
+     * //@PRE: A mailbox of capacity 2 with policy DROP_OLDEST holds m1, m2.
+     * //@POST: Offering m3 evicts and returns m1; the mailbox yields m2 then m3.
+     */
+    @Test
+    void testDropOldest() throws InterruptedException {
+        Mailbox mailbox = new QueueMailbox(2, BackpressurePolicy.DROP_OLDEST);
+        Message m1 = new TestMessage();
+        Message m2 = new TestMessage();
+        Message m3 = new TestMessage();
+
+        assertNull(mailbox.offer(m1));
+        assertNull(mailbox.offer(m2));
+        assertSame(m1, mailbox.offer(m3), "The oldest message should be evicted.");
+
+        assertSame(m2, mailbox.take());
+        assertSame(m3, mailbox.take());
+        assertEquals(2, mailbox.getHighWaterMark(), "The high-water mark should equal the capacity.");
+    }
+
+    /**
+     * //@PRE: A mailbox of capacity 1 with policy DROP_NEWEST (or REJECT) holds m1.
+     * //@POST: Offering m2 returns m2 itself and leaves m1 queued.
+     */
+    @Test
+    void testDropNewestAndReject() throws InterruptedException {
+        for (BackpressurePolicy policy : new BackpressurePolicy[] {BackpressurePolicy.DROP_NEWEST, BackpressurePolicy.REJECT}) {
+            Mailbox mailbox = new QueueMailbox(1, policy);
+            Message m1 = new TestMessage();
+            Message m2 = new TestMessage();
+
+            assertNull(mailbox.offer(m1));
+            assertSame(m2, mailbox.offer(m2), "The new message should be refused under " + policy);
+            assertSame(m1, mailbox.take());
+            assertEquals(0, mailbox.size());
+        }
+    }
+
+    /**
+     * //@PRE: Four senders each offer 10,000 messages to a ring buffer of 64 slots
+     *        with policy BLOCK, while the owner takes them.
+     * //@POST: Every message is taken exactly once and each sender's messages
+     *         arrive in the order they were sent.
+     */
+    @Test
+    void testRingBufferManySenders() throws InterruptedException {
+        final int senders = 4;
+        final int perSender = 10_000;
+        Mailbox mailbox = new RingBufferMailbox(64, BackpressurePolicy.BLOCK, WaitStrategy.SPIN_THEN_PARK);
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < senders; s++) {
+            final int sender = s;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perSender; i++) {
+                    mailbox.offer(new SequencedMessage(sender, i));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        int[] next = new int[senders];
+        for (int i = 0; i < senders * perSender; i++) {
+            SequencedMessage message = (SequencedMessage) mailbox.take();
+            assertEquals(next[message.sender]++, message.sequence, "Messages of one sender should stay in order.");
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(mailbox.poll(), "All messages should have been taken.");
+        assertEquals(64, mailbox.getCapacity());
+    }
+
+    /**
+     * //@PRE: A ring buffer of 8 slots with policy DROP_OLDEST gets 30,000 messages
+     *        offered one at a time and 30,000 in batches of 3, while the owner takes some.
+     * //@POST: Every message is either taken, still queued, or returned as discarded.
+     */
+    @Test
+    void testRingBufferDropOldestBatches() throws InterruptedException {
+        final int perSender = 30_000;
+        Mailbox mailbox = new RingBufferMailbox(8, BackpressurePolicy.DROP_OLDEST, WaitStrategy.SPIN_THEN_PARK);
+        AtomicInteger discarded = new AtomicInteger();
+        Thread single = new Thread(() -> {
+            for (int i = 0; i < perSender; i++) {
+                if (mailbox.offer(new TestMessage()) != null) {
+                    discarded.incrementAndGet();
+                }
+            }
+        });
+        Thread batches = new Thread(() -> {
+            for (int i = 0; i < perSender; i += 3) {
+                discarded.addAndGet(mailbox.offerAll(
+                    Arrays.asList(new TestMessage(), new TestMessage(), new TestMessage())).size());
+            }
+        });
+        single.start();
+        batches.start();
+        int taken = 0;
+        while (single.isAlive() || batches.isAlive()) {
+            if (mailbox.poll() != null) {
+                taken++;
+            }
+        }
+        single.join();
+        batches.join();
+        while (mailbox.poll() != null) {
+            taken++;
+        }
+        assertEquals(2 * perSender, taken + discarded.get(), "No message should be lost without being reported.");
+    }
+
+    /**
+     * //@PRE: A mailbox of capacity 2 with priority lanes (queue and ring buffer)
+     *        is full of data messages d1, d2 when control messages c1, c2 are offered.
+     * //@POST: Neither control message is refused; they are taken first, in order,
+     *         followed by d1 and d2.
+     */
+    @Test
+    void testPriorityLanes() throws InterruptedException {
+        Mailbox[] mailboxes = {
+            new QueueMailbox(2, BackpressurePolicy.REJECT, true),
+            new RingBufferMailbox(2, BackpressurePolicy.REJECT, WaitStrategy.BLOCKING, true)
+        };
+        for (Mailbox mailbox : mailboxes) {
+            Message d1 = new TestMessage();
+            Message d2 = new TestMessage();
+            Message c1 = new ControlMessage();
+            Message c2 = new ControlMessage();
+
+            assertNull(mailbox.offer(d1));
+            assertNull(mailbox.offer(d2));
+            assertNull(mailbox.offer(c1), "The control lane should not be bounded.");
+            assertNull(mailbox.offer(c2));
+
+            assertEquals(4, mailbox.size());
+            assertSame(c1, mailbox.take());
+            assertSame(c2, mailbox.take());
+            assertSame(d1, mailbox.take());
+            assertSame(d2, mailbox.take());
+        }
+    }
+
+    /**
+     * //@PRE: A coalescing mailbox receives tick 1, a data message d, then ticks 2 and 3.
+     * //@POST: The ticks collapse into one TickBroadcast covering [1, 3], queued after d;
+     *         after it is taken, a new tick is queued on its own again.
+     */
+    @Test
+    void testTickCoalescing() throws InterruptedException {
+        Mailbox mailbox = new QueueMailbox(0, BackpressurePolicy.BLOCK, false, true);
+        Message d = new TestMessage();
+
+        assertNull(mailbox.offer(new TickBroadcast(1)));
+        assertNull(mailbox.offer(d));
+        assertNull(mailbox.offer(new TickBroadcast(2)));
+        assertNull(mailbox.offer(new TickBroadcast(3)));
+
+        assertEquals(2, mailbox.size());
+        assertSame(d, mailbox.take());
+        TickBroadcast tick = (TickBroadcast) mailbox.take();
+        assertEquals(1, tick.getFromTick());
+        assertEquals(3, tick.getTick());
+
+        assertNull(mailbox.offer(new TickBroadcast(4)));
+        tick = (TickBroadcast) mailbox.take();
+        assertEquals(4, tick.getFromTick());
+        assertEquals(4, tick.getTick());
+    }
+
+    static class ControlMessage implements Message {
+        @Override
+        public Lane getLane() {
+            return Lane.CONTROL;
+        }
+    }
+
+    static class SequencedMessage implements Message {
+        final int sender;
+        final int sequence;
+
+        SequencedMessage(int sender, int sequence) {
+            this.sender = sender;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bgu.spl.mics.application.SimulationContext;
+
+/**
+ * Test suite for the ticks a discrete-event simulation broadcasts.
+ */
+class SimulationContextTest {
+
+    @TempDir
+    Path dir;
+
+    // Writes a configuration and its data files, returning the context loaded from them.
+    private SimulationContext context(String cameraConfigurations, String cameraData, String lidarConfigurations,
+                                      String lidarData, String poseData) throws IOException {
+        write("camera_data.json", cameraData);
+        write("lidar_data.json", lidarData);
+        write("pose_data.json", poseData);
+        Path config = write("configuration_file.json", "{"
+            + "\"Cameras\": {\"CamerasConfigurations\": [" + cameraConfigurations + "],"
+            + " \"camera_datas_path\": \"./camera_data.json\"},"
+            + "\"LiDarWorkers\": {\"LidarConfigurations\": [" + lidarConfigurations + "],"
+            + " \"lidars_data_path\": \"./lidar_data.json\"},"
+            + "\"poseJsonFile\": \"./pose_data.json\", \"TickTime\": 1, \"Duration\": 10}");
+        return new SimulationContext(config.toString());
+    }
+
+    private Path write(String name, String json) throws IOException {
+        return Files.write(dir.resolve(name), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TreeSet<Integer> ticks(Integer... ticks) {
+        return new TreeSet<>(Arrays.asList(ticks));
+    }
+
+    // A camera of frequency 2 detecting at ticks 1 and 3, tracked by LiDAR workers of frequencies 2 and 1, and 2 poses.
+    private SimulationContext overlapping() throws IOException {
+        return context("{\"id\": 1, \"frequency\": 2, \"camera_key\": \"camera1\"}",
+            "{\"camera1\": [{\"time\": 1, \"detectedObjects\": [{\"id\": \"Wall_1\", \"description\": \"Wall\"}]},"
+                + " {\"time\": 3, \"detectedObjects\": [{\"id\": \"Wall_2\", \"description\": \"Wall\"}]}]}",
+            "{\"id\": 1, \"frequency\": 2}, {\"id\": 2, \"frequency\": 1}",
+            "[{\"time\": 1, \"id\": \"Wall_1\", \"cloudPoints\": [[0.1, 3.6, 0.1]]},"
+                + " {\"time\": 3, \"id\": \"Wall_2\", \"cloudPoints\": [[3.0, -0.3, 0.1]]}]",
+            "[{\"time\": 1, \"x\": 0.0, \"y\": 0.0, \"yaw\": 0.0}, {\"time\": 2, \"x\": 1.0, \"y\": 0.0, \"yaw\": 0.0}]");
+    }
+
+    /**
+     * //@PRE: A camera and two LiDAR workers whose frequencies make them act at the same ticks.
+     * //@POST: Every tick at which a sensor acts, or follows a release, is broadcast once,
+     *         along with the last tick; the idle ticks in between are not.
+     */
+    @Test
+    void testOverlappingFrequencies() throws IOException {
+        // Poses at 1 and 2 and the GPS shutting down at 3; detections sent at 3 and 5; objects
+        // released at 2 to 5 and placed a tick later; the sensors shutting down at 6.
+        assertEquals(ticks(1, 2, 3, 4, 5, 6, 10), overlapping().getActiveTicks(10));
+    }
+
+    /**
+     * //@PRE: No cameras, no LiDAR workers and no poses.
+     * //@POST: Only the GPS shutting down at tick 1 and the last tick are broadcast.
+     */
+    @Test
+    void testEmptySensors() throws IOException {
+        SimulationContext context = context("", "{}", "", "[]", "[]");
+        assertEquals(ticks(1, 10), context.getActiveTicks(10));
+        assertEquals(ticks(1), context.getActiveTicks(1));
+    }
+
+    /**
+     * //@PRE: The sensors of testOverlappingFrequencies, in simulations ending before or at their last action.
+     * //@POST: The ticks stop at the last tick, which is always included; the shared context has none.
+     */
+    @Test
+    void testLastTick() throws IOException {
+        SimulationContext context = overlapping();
+        assertEquals(ticks(1, 2, 3, 4), context.getActiveTicks(4));
+        assertEquals(ticks(1, 2, 3, 4, 5, 6), context.getActiveTicks(6));
+        assertEquals(ticks(1), context.getActiveTicks(1));
+        assertThrows(IllegalStateException.class, () -> SimulationContext.shared().getActiveTicks(10));
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import bgu.spl.mics.ActorScheduler;
+import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.MessageBus;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.StartupCoordinator;
+
+/**
+ * Test suite for starting a simulation's clock once all its MicroServices are ready.
+ */
+class StartupCoordinatorTest {
+
+    static class StartupTickBroadcast implements Broadcast { }
+
+    /**
+     * Counts the StartupTickBroadcasts it receives and stops at the first.
+     */
+    static class Listener extends MicroService {
+        private final AtomicInteger received;
+
+        Listener(String name, MessageBus bus, AtomicInteger received) {
+            super(name, bus);
+            this.received = received;
+        }
+
+        @Override
+        protected void initialize() {
+            subscribeBroadcast(StartupTickBroadcast.class, tick -> {
+                received.incrementAndGet();
+                terminate();
+            });
+        }
+    }
+
+    /**
+     * //@PRE: 1,000 listeners start as actors on a pool of 2 threads, each signaling
+     *        the coordinator once subscribed.
+     * //@POST: A broadcast sent as soon as awaitReady returns reaches every one of them,
+     *         and the coordinator reports when they were ready and the tick sent.
+     */
+    @Test
+    void testBroadcastAfterReadyReachesAllServices() throws InterruptedException {
+        MessageBusImpl bus = new MessageBusImpl();
+        AtomicInteger received = new AtomicInteger();
+        StartupCoordinator coordinator = new StartupCoordinator(1000);
+        List<Listener> listeners = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Listener listener = new Listener("Listener" + i, bus, received);
+            listener.setStartupCoordinator(coordinator);
+            listeners.add(listener);
+        }
+        ActorScheduler scheduler = new ActorScheduler(2, 64);
+        listeners.forEach(scheduler::execute);
+
+        coordinator.awaitReady();
+        bus.sendBroadcast(new StartupTickBroadcast());
+        coordinator.firstTickSent();
+        scheduler.shutdown();
+
+        assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS), "Every listener should get the tick and stop.");
+        assertEquals(1000, received.get(), "No listener should miss the tick.");
+        long ready = coordinator.getTimeToReady(TimeUnit.NANOSECONDS);
+        assertTrue(ready >= 0, "The time to ready should be known once all are ready.");
+        assertTrue(coordinator.getTimeToFirstTick(TimeUnit.NANOSECONDS) >= ready,
+            "The first tick should follow readiness.");
+    }
+}
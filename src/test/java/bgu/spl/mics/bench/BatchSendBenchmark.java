@@ -0,0 +1,118 @@
+package bgu.spl.mics.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.MessageBus;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.OneWayEvent;
+
+/**
+ * Cost of sending a tick's worth of events one by one against a single
+ * {@link MessageBus#sendEvents(List)} call, for growing batch sizes. Scores are
+ * per batch; divide by {@code batchSize} for the cost per event.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.BatchSendBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchSendBenchmark {
+
+    static class BenchEvent implements OneWayEvent<Boolean> { }
+
+    static class Receiver extends MicroService {
+        Receiver(String name) {
+            super(name);
+        }
+
+        @Override
+        protected void initialize() { }
+    }
+
+    private static final int RECEIVERS = 2;
+
+    @Param({"1", "4", "16", "64"})
+    public int batchSize;
+
+    private final MessageBus bus = MessageBusImpl.getInstance();
+    private final List<Receiver> receivers = new ArrayList<>();
+    private final List<Thread> drainers = new ArrayList<>();
+    private List<BenchEvent> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        batch = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new BenchEvent());
+        }
+        for (int i = 0; i < RECEIVERS; i++) {
+            Receiver receiver = new Receiver("Receiver" + i);
+            bus.register(receiver);
+            bus.subscribeEvent(BenchEvent.class, receiver);
+            receivers.add(receiver);
+            Thread drainer = new Thread(() -> {
+                try {
+                    while (true) {
+                        bus.awaitMessage(receiver);
+                    }
+                } catch (InterruptedException | IllegalStateException e) {
+                    // benchmark finished
+                }
+            });
+            drainer.setDaemon(true);
+            drainer.start();
+            drainers.add(drainer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        drainers.forEach(Thread::interrupt);
+        receivers.forEach(bus::unregister);
+    }
+
+    @Benchmark
+    public void oneByOne(Blackhole blackhole) {
+        for (BenchEvent event : batch) {
+            blackhole.consume(bus.sendEvent(event));
+        }
+    }
+
+    @Benchmark
+    public Object batched() {
+        return bus.sendEvents(batch);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(BatchSendBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,150 @@
+package bgu.spl.mics.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.BackpressurePolicy;
+import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.Mailbox;
+import bgu.spl.mics.Message;
+import bgu.spl.mics.MessageBus;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.QueueMailbox;
+
+/**
+ * Cost of {@link MessageBus#sendBroadcast(Broadcast)} itself: a tick sent to
+ * {@code subscribers} services, and a broadcast nobody subscribed to. The
+ * mailboxes only count what they receive, so the score and the allocation
+ * reported by the GC profiler ({@code gc.alloc.rate.norm}) belong to the bus.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.BroadcastFanoutBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastFanoutBenchmark {
+
+    static class Tick implements Broadcast { }
+
+    static class Unheard implements Broadcast { }
+
+    static class Subscriber extends MicroService {
+        Subscriber(String name) {
+            super(name);
+        }
+
+        @Override
+        protected void initialize() { }
+    }
+
+    /**
+     * A mailbox that accepts and forgets every message.
+     */
+    static class CountingMailbox implements Mailbox {
+        long received;
+
+        @Override
+        public Message offer(Message message) {
+            received++;
+            return null;
+        }
+
+        @Override
+        public Message take() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Message poll() {
+            return null;
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public int getCapacity() {
+            return 0;
+        }
+
+        @Override
+        public BackpressurePolicy getPolicy() {
+            return BackpressurePolicy.BLOCK;
+        }
+
+        @Override
+        public int getHighWaterMark() {
+            return 0;
+        }
+    }
+
+    private static final Tick TICK = new Tick();
+    private static final Unheard UNHEARD = new Unheard();
+
+    @Param({"8", "64"})
+    public int subscribers;
+
+    private final MessageBusImpl bus = MessageBusImpl.getInstance();
+    private final List<Subscriber> services = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void subscribe() {
+        bus.setMailboxFactory(m -> new CountingMailbox());
+        for (int i = 0; i < subscribers; i++) {
+            Subscriber subscriber = new Subscriber("Subscriber" + i);
+            bus.register(subscriber);
+            bus.subscribeBroadcast(Tick.class, subscriber);
+            services.add(subscriber);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void unsubscribe() {
+        services.forEach(bus::unregister);
+        bus.setMailboxFactory(m -> new QueueMailbox());
+    }
+
+    @Benchmark
+    public void tick() {
+        bus.sendBroadcast(TICK);
+    }
+
+    @Benchmark
+    public void noSubscribers() {
+        bus.sendBroadcast(UNHEARD);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(BroadcastFanoutBenchmark.class.getSimpleName())
+            .addProfiler("gc")
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,108 @@
+package bgu.spl.mics.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+
+/**
+ * Broadcast delivery through subscriber mailboxes against the shared broadcast
+ * log. Each operation sends {@value #TICKS} ticks and then lets every subscriber
+ * take them. Everything runs on one thread, so the scores are pure CPU cost, and
+ * the GC profiler reports the allocation per operation.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.BroadcastLogBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastLogBenchmark {
+
+    static final int TICKS = 16;
+
+    static class Tick implements Broadcast { }
+
+    static class Subscriber extends MicroService {
+        Subscriber(String name) {
+            super(name);
+        }
+
+        @Override
+        protected void initialize() { }
+    }
+
+    private static final Tick TICK = new Tick();
+
+    @Param({"8", "64", "512"})
+    public int subscribers;
+
+    @Param({"false", "true"})
+    public boolean broadcastLog;
+
+    private final MessageBusImpl bus = MessageBusImpl.getInstance();
+    private final List<Subscriber> services = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void subscribe() {
+        bus.setBroadcastLog(broadcastLog);
+        for (int i = 0; i < subscribers; i++) {
+            Subscriber subscriber = new Subscriber("Subscriber" + i);
+            bus.register(subscriber);
+            bus.subscribeBroadcast(Tick.class, subscriber);
+            services.add(subscriber);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void unsubscribe() {
+        services.forEach(bus::unregister);
+        services.clear();
+        bus.setBroadcastLog(false);
+    }
+
+    @Benchmark
+    public void sendAndReceive(Blackhole blackhole) throws InterruptedException {
+        for (int t = 0; t < TICKS; t++) {
+            bus.sendBroadcast(TICK);
+        }
+        for (Subscriber subscriber : services) {
+            for (int t = 0; t < TICKS; t++) {
+                blackhole.consume(bus.awaitMessage(subscriber));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(BroadcastLogBenchmark.class.getSimpleName())
+            .addProfiler("gc")
+            .build();
+        new Runner(options).run();
+    }
+}
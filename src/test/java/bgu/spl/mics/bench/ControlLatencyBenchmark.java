@@ -0,0 +1,110 @@
+package bgu.spl.mics.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.BackpressurePolicy;
+import bgu.spl.mics.Lane;
+import bgu.spl.mics.Mailbox;
+import bgu.spl.mics.Message;
+import bgu.spl.mics.QueueMailbox;
+import bgu.spl.mics.RingBufferMailbox;
+import bgu.spl.mics.WaitStrategy;
+
+/**
+ * Time for a service to notice a crash or shutdown broadcast that arrives behind
+ * a backlog of data messages, with priority lanes on and off. Each invocation
+ * offers one control message to a mailbox holding {@code backlog} data messages
+ * and takes messages, doing {@code work} units of handler work for each data
+ * message, until the control message comes out.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.ControlLatencyBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlLatencyBenchmark {
+
+    static class DataMessage implements Message { }
+
+    static class ControlMessage implements Message {
+        @Override
+        public Lane getLane() {
+            return Lane.CONTROL;
+        }
+    }
+
+    private static final Message DATA = new DataMessage();
+    private static final Message CONTROL = new ControlMessage();
+
+    @Param({"QUEUE", "RING_BUFFER"})
+    public String type;
+
+    @Param({"false", "true"})
+    public boolean priorityLanes;
+
+    @Param({"0", "1000", "10000"})
+    public int backlog;
+
+    @Param({"100"})
+    public int work;
+
+    private Mailbox mailbox;
+
+    @Setup(Level.Iteration)
+    public void createMailbox() {
+        if (type.equals("RING_BUFFER")) {
+            mailbox = new RingBufferMailbox(16384, BackpressurePolicy.BLOCK, WaitStrategy.BLOCKING, priorityLanes);
+        } else {
+            mailbox = new QueueMailbox(0, BackpressurePolicy.BLOCK, priorityLanes);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fillBacklog() {
+        while (mailbox.poll() != null) {
+            // leftovers of the previous invocation
+        }
+        for (int i = 0; i < backlog; i++) {
+            mailbox.offer(DATA);
+        }
+    }
+
+    @Benchmark
+    public Message noticeControl() throws InterruptedException {
+        mailbox.offer(CONTROL);
+        Message message;
+        while ((message = mailbox.take()) != CONTROL) {
+            Blackhole.consumeCPU(work);
+        }
+        return message;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(ControlLatencyBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
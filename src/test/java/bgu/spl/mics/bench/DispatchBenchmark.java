@@ -0,0 +1,200 @@
+package bgu.spl.mics.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.BackpressurePolicy;
+import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.Mailbox;
+import bgu.spl.mics.Message;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.QueueMailbox;
+
+/**
+ * Per-message cost of finding where a message goes, with {@value #TYPES} message
+ * types in use: {@code handle} runs a service through {@link MicroService#run()}
+ * on messages of every type, replayed by a mailbox that never blocks, so the
+ * score is the callback lookup and call of each message; {@code broadcast} sends
+ * messages of every type through the bus to one subscriber each, so the score is
+ * the bus lookup of the subscribers. Scores are per message.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.DispatchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    static final int TYPES = 12;
+    static final int ROUNDS = 1000;
+    static final int MESSAGES = TYPES * ROUNDS;
+
+    static class M0 implements Broadcast { }
+    static class M1 implements Broadcast { }
+    static class M2 implements Broadcast { }
+    static class M3 implements Broadcast { }
+    static class M4 implements Broadcast { }
+    static class M5 implements Broadcast { }
+    static class M6 implements Broadcast { }
+    static class M7 implements Broadcast { }
+    static class M8 implements Broadcast { }
+    static class M9 implements Broadcast { }
+    static class M10 implements Broadcast { }
+    static class M11 implements Broadcast { }
+
+    static class Stop implements Broadcast { }
+
+    static final List<Class<? extends Broadcast>> CLASSES = Arrays.<Class<? extends Broadcast>>asList(
+        M0.class, M1.class, M2.class, M3.class, M4.class, M5.class,
+        M6.class, M7.class, M8.class, M9.class, M10.class, M11.class
+    );
+
+    /**
+     * Subscribes to every type; the callbacks count what they handle.
+     */
+    static class Handler extends MicroService {
+        long handled;
+
+        Handler() {
+            super("DispatchHandler");
+        }
+
+        @Override
+        protected void initialize() {
+            for (Class<? extends Broadcast> type : CLASSES) {
+                subscribeBroadcast(type, message -> handled++);
+            }
+            subscribeBroadcast(Stop.class, stop -> terminate());
+        }
+    }
+
+    /**
+     * Replays the same messages on every take, ending with a Stop.
+     */
+    static class ReplayMailbox implements Mailbox {
+        private final Message[] messages;
+        private int next;
+
+        ReplayMailbox(Message[] messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public Message offer(Message message) {
+            return null;
+        }
+
+        @Override
+        public Message take() {
+            Message message = messages[next++];
+            if (next == messages.length) {
+                next = 0;
+            }
+            return message;
+        }
+
+        @Override
+        public Message poll() {
+            return take();
+        }
+
+        @Override
+        public int size() {
+            return messages.length;
+        }
+
+        @Override
+        public int getCapacity() {
+            return 0;
+        }
+
+        @Override
+        public BackpressurePolicy getPolicy() {
+            return BackpressurePolicy.BLOCK;
+        }
+
+        @Override
+        public int getHighWaterMark() {
+            return 0;
+        }
+    }
+
+    private final MessageBusImpl bus = MessageBusImpl.getInstance();
+    private final List<Handler> subscribers = new ArrayList<>();
+    private Message[] replayed;
+    private Broadcast[] sent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        replayed = new Message[MESSAGES + 1];
+        sent = new Broadcast[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            sent[i] = CLASSES.get(i % TYPES).getDeclaredConstructor().newInstance();
+            replayed[i] = sent[i];
+        }
+        replayed[MESSAGES] = new Stop();
+        for (int i = 0; i < TYPES; i++) {
+            // Subscribers of the broadcast benchmark, whose mailboxes only drop messages.
+            Handler subscriber = new Handler();
+            bus.setMailboxFactory(m -> new ReplayMailbox(new Message[] {new Stop()}));
+            bus.register(subscriber);
+            bus.subscribeBroadcast(CLASSES.get(i), subscriber);
+            subscribers.add(subscriber);
+        }
+        bus.setMailboxFactory(m -> new ReplayMailbox(replayed));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        subscribers.forEach(bus::unregister);
+        bus.setMailboxFactory(m -> new QueueMailbox());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long handle() {
+        Handler handler = new Handler();
+        handler.run();
+        return handler.handled;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void broadcast() {
+        for (Broadcast b : sent) {
+            bus.sendBroadcast(b);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(DispatchBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
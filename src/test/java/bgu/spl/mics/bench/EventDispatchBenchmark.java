@@ -0,0 +1,110 @@
+package bgu.spl.mics.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.Event;
+import bgu.spl.mics.Message;
+import bgu.spl.mics.MessageBus;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+
+/**
+ * Contention benchmark for {@link MessageBus#sendEvent(Event)}: many sender threads
+ * dispatching the same event type to a small pool of receivers, the way many
+ * CameraServices send DetectObjectsEvents to the LiDAR workers.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.EventDispatchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    static class BenchEvent implements Event<Boolean> { }
+
+    /**
+     * Receiver that never runs its own loop; a drainer thread empties its queue
+     * so the benchmark measures dispatch, not queue growth.
+     */
+    static class Receiver extends MicroService {
+        Receiver(String name) {
+            super(name);
+        }
+
+        @Override
+        protected void initialize() { }
+    }
+
+    private static final int RECEIVERS = 4;
+
+    private final MessageBus bus = MessageBusImpl.getInstance();
+    private final List<Receiver> receivers = new ArrayList<>();
+    private final List<Thread> drainers = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < RECEIVERS; i++) {
+            Receiver receiver = new Receiver("Receiver" + i);
+            bus.register(receiver);
+            bus.subscribeEvent(BenchEvent.class, receiver);
+            receivers.add(receiver);
+            Thread drainer = new Thread(() -> {
+                try {
+                    while (true) {
+                        Message message = bus.awaitMessage(receiver);
+                        bus.complete((BenchEvent) message, Boolean.TRUE);
+                    }
+                } catch (InterruptedException | IllegalStateException e) {
+                    // benchmark finished
+                }
+            });
+            drainer.setDaemon(true);
+            drainer.start();
+            drainers.add(drainer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        drainers.forEach(Thread::interrupt);
+        receivers.forEach(bus::unregister);
+    }
+
+    @Benchmark
+    public Object sendEvent() {
+        return bus.sendEvent(new BenchEvent());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int senders : new int[] {8, 32, 128}) {
+            Options options = new OptionsBuilder()
+                .include(EventDispatchBenchmark.class.getSimpleName())
+                .threads(senders)
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package bgu.spl.mics.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.BackpressurePolicy;
+import bgu.spl.mics.Mailbox;
+import bgu.spl.mics.Message;
+import bgu.spl.mics.QueueMailbox;
+import bgu.spl.mics.RingBufferMailbox;
+import bgu.spl.mics.WaitStrategy;
+
+/**
+ * Throughput and allocation of the mailbox implementations: three senders and
+ * the single owning consumer ({@code mpsc}), and a single thread passing one
+ * message through ({@code transfer}). Senders use DROP_NEWEST so no thread is
+ * left blocked when an iteration ends; the allocation per operation is reported
+ * by the GC profiler ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.MailboxBenchmark}.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailboxBenchmark {
+
+    static class BenchMessage implements Message { }
+
+    private static final Message MESSAGE = new BenchMessage();
+
+    @Param({"QUEUE", "RING_BUFFER"})
+    public String type;
+
+    @Param({"1024"})
+    public int capacity;
+
+    private Mailbox mailbox;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        if (type.equals("RING_BUFFER")) {
+            mailbox = new RingBufferMailbox(capacity, BackpressurePolicy.DROP_NEWEST, WaitStrategy.BLOCKING);
+        } else {
+            mailbox = new QueueMailbox(capacity, BackpressurePolicy.DROP_NEWEST);
+        }
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(3)
+    public Message offer() {
+        return mailbox.offer(MESSAGE);
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public Message poll() {
+        return mailbox.poll();
+    }
+
+    /**
+     * One message through the mailbox with no contention, which isolates the
+     * per-message allocation of each implementation.
+     */
+    @Benchmark
+    @Group("transfer")
+    @GroupThreads(1)
+    public Message transfer() {
+        mailbox.offer(MESSAGE);
+        return mailbox.poll();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(MailboxBenchmark.class.getSimpleName())
+            .addProfiler("gc")
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,114 @@
+package bgu.spl.mics.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.OneWayEvent;
+import bgu.spl.mics.Router;
+import bgu.spl.mics.RoutingKey;
+import bgu.spl.mics.RoutingStrategy;
+
+/**
+ * Cost of choosing the receiver of one event under each {@link RoutingStrategy},
+ * for growing numbers of subscribers. Queue depths are read from a plain array,
+ * so the scores show the router alone; the bus adds a mailbox lookup per
+ * subscriber for LEAST_LOADED.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.RoutingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+
+    static class KeyedEvent implements OneWayEvent<Boolean>, RoutingKey {
+        private final String key;
+
+        KeyedEvent(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object getRoutingKey() {
+            return key;
+        }
+    }
+
+    static class Receiver extends MicroService {
+        final int index;
+
+        Receiver(int index) {
+            super("Receiver" + index);
+            this.index = index;
+        }
+
+        @Override
+        protected void initialize() { }
+    }
+
+    private static final int KEYS = 1024;
+
+    @Param({"ROUND_ROBIN", "LEAST_LOADED", "KEY_AFFINITY"})
+    public RoutingStrategy strategy;
+
+    @Param({"2", "8", "32"})
+    public int subscribers;
+
+    private Router router;
+    private MicroService[] receivers;
+    private KeyedEvent[] events;
+    private int[] depths;
+    private ToIntFunction<MicroService> queueDepth;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        router = strategy.create();
+        receivers = new MicroService[subscribers];
+        depths = new int[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            receivers[i] = new Receiver(i);
+            depths[i] = (i * 7) % 5 + 1;
+        }
+        events = new KeyedEvent[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            events[i] = new KeyedEvent("object" + i);
+        }
+        queueDepth = m -> depths[((Receiver) m).index];
+    }
+
+    @Benchmark
+    public int route() {
+        KeyedEvent event = events[next++ & (KEYS - 1)];
+        return router.route(event, receivers, queueDepth);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(RoutingBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,132 @@
+package bgu.spl.mics.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.MessageBus;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+import bgu.spl.mics.application.ExecutionMode;
+
+/**
+ * Message throughput and memory of {@code services} running services, on the
+ * platform-thread pool, on virtual threads and as actors on a shared pool. Each operation broadcasts one
+ * message and waits until every service has handled it, so the score divided by
+ * {@code services} is the cost per delivered message. The resident set size after
+ * all services have started is printed once per trial.
+ * <p>
+ * The VIRTUAL mode is benchmarked only on Java 21 or later.
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.ServiceScalingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceScalingBenchmark {
+
+    static class Ping implements Broadcast { }
+
+    static class Stop implements Broadcast { }
+
+    class Worker extends MicroService {
+        Worker(String name) {
+            super(name);
+        }
+
+        @Override
+        protected void initialize() {
+            subscribeBroadcast(Ping.class, ping -> handled.countDown());
+            subscribeBroadcast(Stop.class, stop -> terminate());
+            started.countDown();
+        }
+    }
+
+    @Param({"10", "100", "1000", "10000"})
+    public int services;
+
+    @Param({"PLATFORM", "VIRTUAL", "ACTOR"})
+    public String mode;
+
+    private final MessageBus bus = MessageBusImpl.getInstance();
+    private ExecutorService executor;
+    private CountDownLatch started;
+    private volatile CountDownLatch handled;
+
+    @Setup(Level.Trial)
+    public void startServices() throws InterruptedException {
+        long before = residentSetKb();
+        started = new CountDownLatch(services);
+        executor = ExecutionMode.valueOf(mode).createExecutor(services);
+        for (int i = 0; i < services; i++) {
+            executor.execute(new Worker("Worker" + i));
+        }
+        started.await();
+        System.out.printf("%n%d %s services: resident set grew by %d KB, %d live threads%n",
+            services, mode, residentSetKb() - before, Thread.activeCount());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServices() throws InterruptedException {
+        bus.sendBroadcast(new Stop());
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public void broadcastToAll() throws InterruptedException {
+        handled = new CountDownLatch(services);
+        bus.sendBroadcast(new Ping());
+        handled.await();
+    }
+
+    // Linux only; 0 elsewhere.
+    private static long residentSetKb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not available
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String[] modes = ExecutionMode.VIRTUAL.isAvailable()
+            ? new String[] {"PLATFORM", "VIRTUAL", "ACTOR"}
+            : new String[] {"PLATFORM", "ACTOR"};
+        Options options = new OptionsBuilder()
+            .include(ServiceScalingBenchmark.class.getSimpleName())
+            .param("mode", modes)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,169 @@
+package bgu.spl.mics.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.Broadcast;
+import bgu.spl.mics.Event;
+import bgu.spl.mics.MessageBus;
+import bgu.spl.mics.MessageBusImpl;
+import bgu.spl.mics.MicroService;
+
+/**
+ * Time to unregister {@code services} services at the end of a run, from
+ * {@code threads} threads at once. Every service subscribes to three broadcasts
+ * and one event type shared with the others, like the sensors do, while
+ * {@code otherTypes} further message types have subscribers that stay registered.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.ShutdownBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ShutdownBenchmark {
+
+    static class Tick implements Broadcast { }
+
+    static class Terminated implements Broadcast { }
+
+    static class Crashed implements Broadcast { }
+
+    static class Work implements Event<Boolean> { }
+
+    static class Other implements Broadcast { }
+
+    static class Service extends MicroService {
+        Service(String name) {
+            super(name);
+        }
+
+        @Override
+        protected void initialize() { }
+    }
+
+    @Param({"1000"})
+    public int services;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"200"})
+    public int otherTypes;
+
+    private final MessageBus bus = MessageBusImpl.getInstance();
+    private final List<Service> bystanders = new ArrayList<>();
+    private List<Service> sensors;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void subscribeBystanders() throws ReflectiveOperationException {
+        // Distinct broadcast classes, one per bystander.
+        ClassLoader parent = ShutdownBenchmark.class.getClassLoader();
+        for (int i = 0; i < otherTypes; i++) {
+            Class<? extends Broadcast> type = (Class<? extends Broadcast>)
+                new IsolatedLoader(parent).loadClass(Other.class.getName());
+            Service bystander = new Service("Bystander" + i);
+            bus.register(bystander);
+            bus.subscribeBroadcast(type, bystander);
+            bystanders.add(bystander);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void unregisterBystanders() {
+        bystanders.forEach(bus::unregister);
+    }
+
+    @Setup(Level.Invocation)
+    public void registerSensors() {
+        sensors = new ArrayList<>(services);
+        for (int i = 0; i < services; i++) {
+            Service sensor = new Service("Sensor" + i);
+            bus.register(sensor);
+            bus.subscribeBroadcast(Tick.class, sensor);
+            bus.subscribeBroadcast(Terminated.class, sensor);
+            bus.subscribeBroadcast(Crashed.class, sensor);
+            bus.subscribeEvent(Work.class, sensor);
+            sensors.add(sensor);
+        }
+    }
+
+    @Benchmark
+    public void unregisterAll() throws InterruptedException {
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            final int first = t;
+            Thread worker = new Thread(() -> {
+                for (int i = first; i < sensors.size(); i += threads) {
+                    bus.unregister(sensors.get(i));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * Loads its own copy of a class, so that each copy is a distinct message type.
+     */
+    static class IsolatedLoader extends ClassLoader {
+        IsolatedLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(Other.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    bytes.write(buffer, 0, read);
+                }
+                byte[] code = bytes.toByteArray();
+                return defineClass(name, code, 0, code.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(ShutdownBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,82 @@
+package bgu.spl.mics.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bgu.spl.mics.BackpressurePolicy;
+import bgu.spl.mics.Mailbox;
+import bgu.spl.mics.Message;
+import bgu.spl.mics.QueueMailbox;
+import bgu.spl.mics.application.messages.broadcast.TickBroadcast;
+
+/**
+ * Time for a service that fell {@code lag} ticks behind to catch up, with tick
+ * coalescing on and off. Each tick taken from the mailbox costs {@code work}
+ * units of callback overhead, on top of one unit per tick covered.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/classes:target/test-classes:<test classpath> bgu.spl.mics.bench.TickCatchUpBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickCatchUpBenchmark {
+
+    @Param({"false", "true"})
+    public boolean coalesce;
+
+    @Param({"10", "1000"})
+    public int lag;
+
+    @Param({"500"})
+    public int work;
+
+    private Mailbox mailbox;
+
+    @Setup(Level.Invocation)
+    public void fallBehind() {
+        mailbox = new QueueMailbox(0, BackpressurePolicy.BLOCK, false, coalesce);
+        for (int tick = 1; tick <= lag; tick++) {
+            mailbox.offer(new TickBroadcast(tick));
+        }
+    }
+
+    @Benchmark
+    public int catchUp() {
+        int last = 0;
+        Message message;
+        while ((message = mailbox.poll()) != null) {
+            TickBroadcast tick = (TickBroadcast) message;
+            Blackhole.consumeCPU(work + tick.getTick() - tick.getFromTick() + 1);
+            last = tick.getTick();
+        }
+        return last;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(TickCatchUpBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
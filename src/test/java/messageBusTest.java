@@ -1,7 +1,14 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,10 +17,16 @@ import org.junit.jupiter.api.Test;
 import bgu.spl.mics.Broadcast;
 import bgu.spl.mics.Event;
 import bgu.spl.mics.Future;
+import bgu.spl.mics.LagHistogram;
 import bgu.spl.mics.Message;
 import bgu.spl.mics.MessageBus;
 import bgu.spl.mics.MessageBusImpl;
 import bgu.spl.mics.MicroService;
+import bgu.spl.mics.OneWayEvent;
+import bgu.spl.mics.Router;
+import bgu.spl.mics.RoutingKey;
+import bgu.spl.mics.RoutingStrategy;
+import bgu.spl.mics.ScheduledMessage;
 
 /**
  * Basic test suite for MessageBusImpl functionality.
@@ -29,11 +42,334 @@ class MessageBusTest {
      */
     static class TestEvent implements Event<String> { }
 
+    /**
+     * Minimal mock one-way Event.
+     */
+    static class TestOneWayEvent implements OneWayEvent<String> { }
+
+    /**
+     * Minimal mock Event used only by the batch test, so no other test's subscribers receive it.
+     */
+    static class TestBatchEvent implements Event<String> { }
+
     /**
      * Minimal mock Broadcast.
      */
     static class TestBroadcast implements Broadcast { }
 
+    /**
+     * Mock Broadcast due at a given time.
+     */
+    static class TestScheduledBroadcast extends TestBroadcast implements ScheduledMessage {
+        final long scheduledNanos;
+
+        TestScheduledBroadcast(long scheduledNanos) {
+            this.scheduledNanos = scheduledNanos;
+        }
+
+        @Override
+        public long getScheduledNanos() {
+            return scheduledNanos;
+        }
+    }
+
+    /**
+     * Minimal mock Broadcast used only by the subscription-snapshot test.
+     */
+    static class TestSnapshotBroadcast implements Broadcast { }
+
+    /**
+     * Minimal mock Broadcast and Event used only by the broadcast-log test.
+     */
+    static class TestLogBroadcast implements Broadcast { }
+
+    static class TestLogEvent implements OneWayEvent<String> { }
+
+    /**
+     * Minimal mock Broadcast and Event carrying a value, used only by the filter test.
+     */
+    static class TestFilterBroadcast implements Broadcast {
+        final int value;
+
+        TestFilterBroadcast(int value) {
+            this.value = value;
+        }
+    }
+
+    static class TestFilterEvent implements OneWayEvent<String> {
+        final int value;
+
+        TestFilterEvent(int value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Mock message hierarchies used only by the polymorphic subscription tests.
+     */
+    interface TestSensorEvent extends OneWayEvent<String> { }
+
+    static class TestCameraEvent implements TestSensorEvent { }
+
+    static class TestLidarEvent implements TestSensorEvent { }
+
+    static class TestBaseBroadcast implements Broadcast { }
+
+    static class TestDerivedBroadcast extends TestBaseBroadcast { }
+
+    static class TestOtherBroadcast extends TestBaseBroadcast { }
+
+    /**
+     * Mock message hierarchies carrying a value, used only by the filter-precedence test.
+     */
+    static class TestValueBroadcast implements Broadcast {
+        final int value;
+
+        TestValueBroadcast(int value) {
+            this.value = value;
+        }
+    }
+
+    static class TestDerivedValueBroadcast extends TestValueBroadcast {
+        TestDerivedValueBroadcast(int value) {
+            super(value);
+        }
+    }
+
+    static class TestValueEvent implements OneWayEvent<String> {
+        final int value;
+
+        TestValueEvent(int value) {
+            this.value = value;
+        }
+    }
+
+    static class TestDerivedValueEvent extends TestValueEvent {
+        TestDerivedValueEvent(int value) {
+            super(value);
+        }
+    }
+
+    /**
+     * Subscribes to TestBaseBroadcast and to its subclass TestDerivedBroadcast,
+     * recording which callback handled each broadcast.
+     */
+    static class HierarchyService extends MicroService {
+        final List<String> handled = new ArrayList<>();
+        final CountDownLatch initialized = new CountDownLatch(1);
+
+        HierarchyService() {
+            super("HierarchyService");
+        }
+
+        @Override
+        protected void initialize() {
+            subscribeBroadcast(TestBaseBroadcast.class, b -> handled.add("base:" + b.getClass().getSimpleName()));
+            subscribeBroadcast(TestDerivedBroadcast.class, b -> {
+                handled.add("derived");
+                terminate();
+            });
+            initialized.countDown();
+        }
+    }
+
+    /**
+     * On a TestBroadcast, sends a TestOneWayEvent to the worker, which records it
+     * after a delay; both stop on a TestFilterBroadcast.
+     */
+    static class RelayService extends MicroService {
+        final CountDownLatch initialized = new CountDownLatch(1);
+        final List<String> handled = new ArrayList<>();
+        private final boolean worker;
+
+        RelayService(String name, MessageBus messageBus, boolean worker) {
+            super(name, messageBus);
+            this.worker = worker;
+        }
+
+        @Override
+        protected void initialize() {
+            if (worker) {
+                subscribeEvent(TestOneWayEvent.class, e -> {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException ignored) {
+                        Thread.currentThread().interrupt();
+                    }
+                    synchronized (handled) {
+                        handled.add("event");
+                    }
+                });
+            } else {
+                subscribeBroadcast(TestBroadcast.class, b -> sendEvent(new TestOneWayEvent()));
+            }
+            subscribeBroadcast(TestFilterBroadcast.class, b -> terminate());
+            initialized.countDown();
+        }
+    }
+
+    /**
+     * Holds pending work from its start until the first TestBroadcast; stops on a TestFilterBroadcast.
+     */
+    static class HoldingService extends MicroService {
+        final CountDownLatch initialized = new CountDownLatch(1);
+
+        HoldingService(String name, MessageBus messageBus) {
+            super(name, messageBus);
+        }
+
+        @Override
+        protected void initialize() {
+            setPendingWork(1);
+            subscribeBroadcast(TestBroadcast.class, b -> setPendingWork(0));
+            subscribeBroadcast(TestFilterBroadcast.class, b -> terminate());
+            initialized.countDown();
+        }
+    }
+
+    /**
+     * Counts the TestLogBroadcasts it receives, subscribing to them only once
+     * {@code subscribeGate} opens; stops on a TestFilterBroadcast.
+     */
+    static class LogCounter extends MicroService {
+        final CountDownLatch registered = new CountDownLatch(1);
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        final CountDownLatch subscribeGate;
+        final AtomicInteger received = new AtomicInteger();
+
+        LogCounter(String name, MessageBus messageBus, CountDownLatch subscribeGate) {
+            super(name, messageBus);
+            this.subscribeGate = subscribeGate;
+        }
+
+        @Override
+        protected void initialize() {
+            subscribeBroadcast(TestFilterBroadcast.class, b -> terminate());
+            registered.countDown();
+            try {
+                subscribeGate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            subscribeBroadcast(TestLogBroadcast.class, b -> received.incrementAndGet());
+            subscribed.countDown();
+        }
+    }
+
+    /**
+     * A MessageBus that is not a MessageBusImpl, forwarding every call to one.
+     */
+    static class ForwardingBus implements MessageBus {
+        private final MessageBusImpl bus;
+
+        ForwardingBus(MessageBusImpl bus) {
+            this.bus = bus;
+        }
+
+        @Override
+        public <T> void subscribeEvent(Class<? extends Event<T>> type, MicroService m) {
+            bus.subscribeEvent(type, m);
+        }
+
+        @Override
+        public <T, E extends Event<T>> void subscribeEvent(Class<? extends E> type, Predicate<? super E> filter, MicroService m) {
+            bus.subscribeEvent(type, filter, m);
+        }
+
+        @Override
+        public void subscribeBroadcast(Class<? extends Broadcast> type, MicroService m) {
+            bus.subscribeBroadcast(type, m);
+        }
+
+        @Override
+        public <B extends Broadcast> void subscribeBroadcast(Class<? extends B> type, Predicate<? super B> filter, MicroService m) {
+            bus.subscribeBroadcast(type, filter, m);
+        }
+
+        @Override
+        public <T> void complete(Event<T> e, T result) {
+            bus.complete(e, result);
+        }
+
+        @Override
+        public void sendBroadcast(Broadcast b) {
+            bus.sendBroadcast(b);
+        }
+
+        @Override
+        public <T> Future<T> sendEvent(Event<T> e) {
+            return bus.sendEvent(e);
+        }
+
+        @Override
+        public <T> List<Future<T>> sendEvents(List<? extends Event<T>> events) {
+            return bus.sendEvents(events);
+        }
+
+        @Override
+        public void register(MicroService m) {
+            bus.register(m);
+        }
+
+        @Override
+        public void unregister(MicroService m) {
+            bus.unregister(m);
+        }
+
+        @Override
+        public Message awaitMessage(MicroService m) throws InterruptedException {
+            return bus.awaitMessage(m);
+        }
+
+        @Override
+        public boolean isRegistered(MicroService m) {
+            return bus.isRegistered(m);
+        }
+    }
+
+    /**
+     * Records the even TestFilterEvents and TestFilterBroadcasts it receives through
+     * filtered subscriptions; stops on the broadcast of value 4.
+     */
+    static class EvenService extends MicroService {
+        final CountDownLatch initialized = new CountDownLatch(1);
+        final List<String> received = new ArrayList<>();
+
+        EvenService(MessageBus messageBus) {
+            super("EvenService", messageBus);
+        }
+
+        @Override
+        protected void initialize() {
+            subscribeEvent(TestFilterEvent.class, e -> e.value % 2 == 0, e -> received.add("event:" + e.value));
+            subscribeBroadcast(TestFilterBroadcast.class, b -> b.value % 2 == 0, b -> {
+                received.add("broadcast:" + b.value);
+                if (b.value == 4) {
+                    terminate();
+                }
+            });
+            initialized.countDown();
+        }
+    }
+
+    /**
+     * Minimal mock Events used only by the routing tests.
+     */
+    static class TestLoadEvent implements OneWayEvent<String> { }
+
+    static class TestKeyedEvent implements OneWayEvent<String>, RoutingKey {
+        private final String key;
+
+        TestKeyedEvent(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object getRoutingKey() {
+            return key;
+        }
+    }
+
     /**
      * Minimal MicroService for testing. We override run() to continuously
      * try to take messages from the bus, but in unit tests, we may not
@@ -45,6 +381,10 @@ class MessageBusTest {
             super(name);
         }
 
+        public MockMicroService(String name, MessageBus messageBus) {
+            super(name, messageBus);
+        }
+
         @Override
         protected void initialize() {
             // In a real scenario, you'd subscribe to events/broadcasts here.
@@ -110,6 +450,78 @@ class MessageBusTest {
         assertEquals("TestResult", result, "Future should return the completed value.");
     }
 
+    /**
+     * //@PRE: Two MicroServices (m1, m2) are registered and subscribed to TestEvent.
+     * //@POST: A batch of four events is split between them in round-robin order,
+     *         with one Future per event in the order the events were given.
+     */
+    @Test
+    void testSendEventsBatch() throws InterruptedException {
+        MockMicroService m1 = new MockMicroService("BatchReceiver1");
+        MockMicroService m2 = new MockMicroService("BatchReceiver2");
+        messageBus.register(m1);
+        messageBus.register(m2);
+        messageBus.subscribeEvent(TestBatchEvent.class, m1);
+        messageBus.subscribeEvent(TestBatchEvent.class, m2);
+
+        List<TestBatchEvent> events = Arrays.asList(new TestBatchEvent(), new TestBatchEvent(), new TestBatchEvent(), new TestBatchEvent());
+        List<Future<String>> futures = messageBus.sendEvents(events);
+        assertEquals(events.size(), futures.size());
+
+        assertTrue(messageBus.awaitMessage(m1) == events.get(0), "M1 should get the first event.");
+        assertTrue(messageBus.awaitMessage(m2) == events.get(1), "M2 should get the second event.");
+        assertTrue(messageBus.awaitMessage(m1) == events.get(2), "M1 should get the third event.");
+        assertTrue(messageBus.awaitMessage(m2) == events.get(3), "M2 should get the fourth event.");
+        messageBus.complete(events.get(3), "done");
+        assertEquals("done", futures.get(3).get(1, TimeUnit.SECONDS));
+        messageBus.unregister(m1);
+        messageBus.unregister(m2);
+    }
+
+    /**
+     * //@PRE: MicroService is registered and subscribed to TestOneWayEvent.
+     * //@POST: sendEvent returns no Future, yet the event is delivered.
+     */
+    @Test
+    void testSendOneWayEvent() throws InterruptedException {
+        MockMicroService mService = new MockMicroService("OneWayReceiver");
+        messageBus.register(mService);
+        messageBus.subscribeEvent(TestOneWayEvent.class, mService);
+
+        TestOneWayEvent event = new TestOneWayEvent();
+        assertNull(messageBus.sendEvent(event), "A one-way event should not get a Future.");
+        assertTrue(messageBus.awaitMessage(mService) == event, "The one-way event should still be delivered.");
+        messageBus.unregister(mService);
+    }
+
+    /**
+     * //@PRE: Futures expire after 1 ms; an event is sent and never completed.
+     * //@POST: After two timeout periods and further sends, its Future is resolved
+     *         with null and counted as expired.
+     */
+    @Test
+    void testUncompletedFutureExpires() throws InterruptedException {
+        MessageBusImpl bus = MessageBusImpl.getInstance();
+        MockMicroService mService = new MockMicroService("SlowReceiver");
+        bus.register(mService);
+        bus.subscribeEvent(TestEvent.class, mService);
+        long expiredBefore = bus.getExpiredFutures();
+        bus.setFutureTimeout(1, TimeUnit.MILLISECONDS);
+        try {
+            Future<String> future = bus.sendEvent(new TestEvent());
+            for (int i = 0; i < 2; i++) {
+                Thread.sleep(5);
+                bus.sendEvent(new TestEvent());
+            }
+            assertTrue(future.isDone(), "The uncompleted Future should have expired.");
+            assertNull(future.get());
+            assertTrue(bus.getExpiredFutures() > expiredBefore, "The expired Future should be counted.");
+        } finally {
+            bus.setFutureTimeout(0, TimeUnit.MILLISECONDS);
+            bus.unregister(mService);
+        }
+    }
+
     /**
      * //@PRE: Two MicroServices (m1, m2) are registered and subscribed to TestBroadcast.
      * //@POST: Both microservices receive the broadcast message.
@@ -136,4 +548,529 @@ class MessageBusTest {
         assertTrue(msg1 instanceof TestBroadcast, "M1 should receive a TestBroadcast.");
         assertTrue(msg2 instanceof TestBroadcast, "M2 should receive a TestBroadcast.");
     }
+
+    /**
+     * //@PRE: m1 subscribes to TestSnapshotBroadcast before registering; m2 registers first.
+     * //@POST: Both receive the broadcast once m1 registers; after m2 unregisters,
+     *         m1 alone keeps receiving it.
+     */
+    @Test
+    void testBroadcastSubscribersFollowRegistration() throws InterruptedException {
+        MockMicroService m1 = new MockMicroService("M1");
+        MockMicroService m2 = new MockMicroService("M2");
+        messageBus.subscribeBroadcast(TestSnapshotBroadcast.class, m1);
+        messageBus.register(m2);
+        messageBus.subscribeBroadcast(TestSnapshotBroadcast.class, m2);
+        messageBus.register(m1);
+
+        messageBus.sendBroadcast(new TestSnapshotBroadcast());
+        assertTrue(messageBus.awaitMessage(m1) instanceof TestSnapshotBroadcast, "M1 should receive the broadcast.");
+        assertTrue(messageBus.awaitMessage(m2) instanceof TestSnapshotBroadcast, "M2 should receive the broadcast.");
+
+        messageBus.unregister(m2);
+        messageBus.sendBroadcast(new TestSnapshotBroadcast());
+        assertTrue(messageBus.awaitMessage(m1) instanceof TestSnapshotBroadcast, "M1 should still receive the broadcast.");
+        messageBus.unregister(m1);
+    }
+
+    /**
+     * //@PRE: On a bus of its own, five services subscribe to TestFilterBroadcast, the
+     *        second accepting only even values; they unregister one by one, the
+     *        middle one first.
+     * //@POST: After each removal, an odd and an even broadcast reach exactly the
+     *         remaining services, once each and through their own filter.
+     */
+    @Test
+    void testUnregisterKeepsOtherBroadcastSubscribers() throws InterruptedException {
+        MessageBusImpl bus = new MessageBusImpl();
+        List<MockMicroService> services = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            MockMicroService m = new MockMicroService("Subscriber" + i, bus);
+            bus.register(m);
+            if (i == 1) {
+                bus.<TestFilterBroadcast>subscribeBroadcast(TestFilterBroadcast.class, b -> b.value % 2 == 0, m);
+            } else {
+                bus.subscribeBroadcast(TestFilterBroadcast.class, m);
+            }
+            services.add(m);
+        }
+
+        List<MockMicroService> remaining = new ArrayList<>(services);
+        int odd = 1;
+        for (int index : new int[] {2, 0, 2, 1}) {
+            bus.unregister(remaining.remove(index));
+            bus.sendBroadcast(new TestFilterBroadcast(odd));
+            bus.sendBroadcast(new TestFilterBroadcast(odd + 1));
+            for (MockMicroService m : remaining) {
+                if (m != services.get(1)) {
+                    assertEquals(odd, ((TestFilterBroadcast) bus.awaitMessage(m)).value, m.getName() + " should get every broadcast.");
+                }
+                assertEquals(odd + 1, ((TestFilterBroadcast) bus.awaitMessage(m)).value, m.getName() + " should get the even one.");
+            }
+            odd += 2;
+        }
+        assertEquals(Arrays.asList(services.get(1)), remaining);
+        bus.unregister(services.get(1));
+    }
+
+    /**
+     * //@PRE: The broadcast log is enabled; m1 and m2 subscribe to TestLogBroadcast,
+     *        m1 also to TestLogEvent. An event, 3,000 broadcasts (several log
+     *        segments) and another event are sent, and TestBroadcast, which neither
+     *        subscribed to, is broadcast in between.
+     * //@POST: Each service receives the messages in the order they were sent, and
+     *         nothing it did not subscribe to.
+     */
+    @Test
+    void testBroadcastLogKeepsSendOrder() throws InterruptedException {
+        MessageBusImpl bus = MessageBusImpl.getInstance();
+        bus.setBroadcastLog(true);
+        MockMicroService m1 = new MockMicroService("M1");
+        MockMicroService m2 = new MockMicroService("M2");
+        try {
+            bus.register(m1);
+            bus.register(m2);
+            bus.subscribeBroadcast(TestLogBroadcast.class, m1);
+            bus.subscribeBroadcast(TestLogBroadcast.class, m2);
+            bus.subscribeEvent(TestLogEvent.class, m1);
+
+            TestLogEvent first = new TestLogEvent();
+            TestLogEvent last = new TestLogEvent();
+            bus.sendEvent(first);
+            for (int i = 0; i < 3000; i++) {
+                bus.sendBroadcast(new TestLogBroadcast());
+                if (i == 1500) {
+                    bus.sendBroadcast(new TestBroadcast());
+                }
+            }
+            bus.sendEvent(last);
+
+            assertEquals(first, bus.awaitMessage(m1), "The first event was sent before every broadcast.");
+            for (int i = 0; i < 3000; i++) {
+                assertTrue(bus.awaitMessage(m1) instanceof TestLogBroadcast);
+                assertTrue(bus.awaitMessage(m2) instanceof TestLogBroadcast);
+            }
+            assertEquals(last, bus.awaitMessage(m1), "The last event was sent after every broadcast.");
+        } finally {
+            bus.unregister(m1);
+            bus.unregister(m2);
+            bus.setBroadcastLog(false);
+        }
+    }
+
+    /**
+     * //@PRE: A bus with the broadcast log and in-flight tracking; a service registers,
+     *        then 3 TestLogBroadcasts are sent to another subscriber before it
+     *        subscribes too, and 1 after.
+     * //@POST: It receives only the last broadcast, the earlier ones never counting
+     *         for it, so nothing is left in flight, and the count never goes below 0.
+     */
+    @Test
+    void testBroadcastLogReadsFromSubscription() throws InterruptedException {
+        MessageBusImpl bus = new MessageBusImpl();
+        bus.setInFlightTracking(true);
+        bus.setBroadcastLog(true);
+        LogCounter early = new LogCounter("Early", bus, new CountDownLatch(0));
+        CountDownLatch gate = new CountDownLatch(1);
+        LogCounter late = new LogCounter("Late", bus, gate);
+        Thread earlyThread = new Thread(early);
+        Thread lateThread = new Thread(late);
+        earlyThread.start();
+        lateThread.start();
+        early.subscribed.await();
+        late.registered.await();
+
+        for (int i = 0; i < 3; i++) {
+            bus.sendBroadcast(new TestLogBroadcast());
+        }
+        gate.countDown();
+        late.subscribed.await();
+        bus.sendBroadcast(new TestLogBroadcast());
+        bus.awaitQuiescence();
+
+        assertEquals(4, early.received.get());
+        assertEquals(1, late.received.get(), "Broadcasts sent before the subscription should not be read.");
+        assertEquals(0, bus.getInFlight(), "The in-flight count should not go below 0.");
+        bus.sendBroadcast(new TestFilterBroadcast(0));
+        earlyThread.join(5000);
+        lateThread.join(5000);
+    }
+
+    /**
+     * //@PRE: f1 subscribes to TestFilterBroadcast and TestFilterEvent with filters
+     *        accepting only even values, f2 subscribes to both without a filter;
+     *        values 1 to 4 are broadcast and sent as events.
+     * //@POST: f1 receives only the even broadcasts, f2 all of them; odd events all
+     *         go to f2; after f1 unregisters, the messages its filters kept out are counted.
+     */
+    @Test
+    void testFilteredSubscriptions() throws InterruptedException {
+        MessageBusImpl bus = MessageBusImpl.getInstance();
+        MockMicroService f1 = new MockMicroService("Filtering");
+        MockMicroService f2 = new MockMicroService("Unfiltered");
+        bus.register(f1);
+        bus.register(f2);
+        bus.<TestFilterBroadcast>subscribeBroadcast(TestFilterBroadcast.class, b -> b.value % 2 == 0, f1);
+        bus.subscribeBroadcast(TestFilterBroadcast.class, f2);
+        bus.<String, TestFilterEvent>subscribeEvent(TestFilterEvent.class, e -> e.value % 2 == 0, f1);
+        bus.subscribeEvent(TestFilterEvent.class, f2);
+
+        for (int value = 1; value <= 4; value++) {
+            bus.sendBroadcast(new TestFilterBroadcast(value));
+        }
+        for (int value = 1; value <= 4; value++) {
+            assertEquals(value, ((TestFilterBroadcast) bus.awaitMessage(f2)).value);
+        }
+        assertEquals(2, ((TestFilterBroadcast) bus.awaitMessage(f1)).value);
+        assertEquals(4, ((TestFilterBroadcast) bus.awaitMessage(f1)).value);
+
+        bus.sendEvents(Arrays.asList(new TestFilterEvent(1), new TestFilterEvent(3)));
+        assertEquals(1, ((TestFilterEvent) bus.awaitMessage(f2)).value);
+        assertEquals(3, ((TestFilterEvent) bus.awaitMessage(f2)).value);
+
+        bus.unregister(f1);
+        bus.unregister(f2);
+        assertEquals(2L, bus.getFilteredMessages().get("Filtering/TestFilterBroadcast"));
+        assertEquals(2L, bus.getFilteredMessages().get("Filtering/TestFilterEvent"));
+    }
+
+    /**
+     * //@PRE: A service built on a MessageBus other than MessageBusImpl subscribes to
+     *        TestFilterEvent and TestFilterBroadcast with filters accepting even values;
+     *        values 1 and 2 are sent as events, then 1 to 4 broadcast.
+     * //@POST: It subscribes through the interface and receives only the even messages.
+     */
+    @Test
+    void testFilteredSubscriptionsOnAnyBus() throws InterruptedException {
+        MessageBusImpl bus = new MessageBusImpl();
+        EvenService service = new EvenService(new ForwardingBus(bus));
+        Thread thread = new Thread(service);
+        thread.start();
+        assertTrue(service.initialized.await(10, TimeUnit.SECONDS), "Subscribing with a filter should not fail.");
+
+        bus.sendEvents(Arrays.asList(new TestFilterEvent(1), new TestFilterEvent(2)));
+        for (int value = 1; value <= 4; value++) {
+            bus.sendBroadcast(new TestFilterBroadcast(value));
+        }
+        thread.join(10_000);
+
+        assertEquals(Arrays.asList("event:2", "broadcast:2", "broadcast:4"), service.received);
+    }
+
+    /**
+     * //@PRE: s1 subscribes to the TestSensorEvent interface and to TestBaseBroadcast;
+     *        s2 subscribes to the concrete TestLidarEvent and TestDerivedBroadcast,
+     *        after a TestCameraEvent was already routed.
+     * //@POST: s1 receives both kinds of sensor events and s2 shares the lidar events
+     *         with it; a TestDerivedBroadcast reaches both, a TestOtherBroadcast only s1.
+     */
+    @Test
+    void testPolymorphicSubscriptions() throws InterruptedException {
+        MockMicroService s1 = new MockMicroService("SensorConsumer");
+        MockMicroService s2 = new MockMicroService("LidarConsumer");
+        messageBus.register(s1);
+        messageBus.register(s2);
+        messageBus.subscribeEvent(TestSensorEvent.class, s1);
+        messageBus.subscribeBroadcast(TestBaseBroadcast.class, s1);
+
+        TestCameraEvent camera = new TestCameraEvent();
+        messageBus.sendEvent(camera);
+        assertEquals(camera, messageBus.awaitMessage(s1));
+
+        messageBus.subscribeEvent(TestLidarEvent.class, s2);
+        messageBus.subscribeBroadcast(TestDerivedBroadcast.class, s2);
+        messageBus.sendEvent(new TestLidarEvent());
+        messageBus.sendEvent(new TestLidarEvent());
+        assertTrue(messageBus.awaitMessage(s1) instanceof TestLidarEvent, "The interface subscriber should share lidar events.");
+        assertTrue(messageBus.awaitMessage(s2) instanceof TestLidarEvent, "The exact subscriber should share lidar events.");
+
+        TestDerivedBroadcast derived = new TestDerivedBroadcast();
+        messageBus.sendBroadcast(new TestOtherBroadcast());
+        messageBus.sendBroadcast(derived);
+        assertTrue(messageBus.awaitMessage(s1) instanceof TestOtherBroadcast);
+        assertEquals(derived, messageBus.awaitMessage(s1));
+        assertEquals(derived, messageBus.awaitMessage(s2), "The other broadcast should not reach the subclass subscriber.");
+        messageBus.unregister(s1);
+        messageBus.unregister(s2);
+    }
+
+    /**
+     * //@PRE: On a bus of its own, m1 subscribes to a subclass with a filter accepting
+     *        values above 10, then to its superclass without a filter, before any
+     *        message is sent; m2 does the same, but subscribes to the superclass
+     *        only after a message of the subclass was sent.
+     * //@POST: Both receive a message of the subclass only if the subclass filter,
+     *         whose callback handles it, accepts it; messages of the superclass
+     *         itself all reach them.
+     */
+    @Test
+    void testFilterOfMostSpecificSubscription() throws InterruptedException {
+        MessageBusImpl bus = new MessageBusImpl();
+        MockMicroService m1 = new MockMicroService("Resolved after", bus);
+        MockMicroService m2 = new MockMicroService("Resolved before", bus);
+        bus.register(m1);
+        bus.register(m2);
+        bus.<TestDerivedValueBroadcast>subscribeBroadcast(TestDerivedValueBroadcast.class, b -> b.value > 10, m1);
+        bus.subscribeBroadcast(TestValueBroadcast.class, m1);
+        bus.<String, TestDerivedValueEvent>subscribeEvent(TestDerivedValueEvent.class, e -> e.value > 10, m1);
+        bus.subscribeEvent(TestValueEvent.class, m1);
+
+        bus.<TestDerivedValueBroadcast>subscribeBroadcast(TestDerivedValueBroadcast.class, b -> b.value > 10, m2);
+        bus.sendBroadcast(new TestDerivedValueBroadcast(1));
+        bus.subscribeBroadcast(TestValueBroadcast.class, m2);
+
+        bus.sendBroadcast(new TestDerivedValueBroadcast(2));
+        bus.sendBroadcast(new TestDerivedValueBroadcast(20));
+        bus.sendBroadcast(new TestValueBroadcast(3));
+        for (MockMicroService m : Arrays.asList(m1, m2)) {
+            assertEquals(20, ((TestValueBroadcast) bus.awaitMessage(m)).value,
+                m.getName() + ": the subclass filter should reject 1 and 2.");
+            assertEquals(3, ((TestValueBroadcast) bus.awaitMessage(m)).value);
+        }
+
+        bus.sendEvent(new TestDerivedValueEvent(4));
+        assertNull(bus.sendEvent(new TestDerivedValueEvent(5)), "No subscriber should accept 5.");
+        TestDerivedValueEvent accepted = new TestDerivedValueEvent(40);
+        TestValueEvent base = new TestValueEvent(6);
+        bus.sendEvent(accepted);
+        bus.sendEvent(base);
+        assertEquals(accepted, bus.awaitMessage(m1), "The subclass filter should reject 4 and 5.");
+        assertEquals(base, bus.awaitMessage(m1));
+        bus.unregister(m1);
+        bus.unregister(m2);
+    }
+
+    /**
+     * //@PRE: A running service subscribed to TestBaseBroadcast and to its subclass
+     *        TestDerivedBroadcast receives a TestOtherBroadcast, then a TestDerivedBroadcast.
+     * //@POST: The first is handled by the base callback, the second by the subclass
+     *         callback only.
+     */
+    @Test
+    void testCallbackOfMostSpecificType() throws InterruptedException {
+        HierarchyService service = new HierarchyService();
+        Thread thread = new Thread(service);
+        thread.start();
+        service.initialized.await();
+
+        messageBus.sendBroadcast(new TestOtherBroadcast());
+        messageBus.sendBroadcast(new TestDerivedBroadcast());
+        thread.join(5000);
+
+        assertEquals(Arrays.asList("base:TestOtherBroadcast", "derived"), service.handled);
+    }
+
+    /**
+     * //@PRE: TestLoadEvent is routed LEAST_LOADED; m1 alone receives two events,
+     *        then m2 subscribes with an empty mailbox.
+     * //@POST: The next two events both go to m2, which was less loaded for each.
+     */
+    @Test
+    void testLeastLoadedRouting() throws InterruptedException {
+        MessageBusImpl bus = MessageBusImpl.getInstance();
+        bus.setRouting(TestLoadEvent.class, RoutingStrategy.LEAST_LOADED);
+        MockMicroService m1 = new MockMicroService("M1");
+        MockMicroService m2 = new MockMicroService("M2");
+        bus.register(m1);
+        bus.register(m2);
+        bus.subscribeEvent(TestLoadEvent.class, m1);
+        TestLoadEvent[] events = {new TestLoadEvent(), new TestLoadEvent(), new TestLoadEvent(), new TestLoadEvent()};
+        bus.sendEvent(events[0]);
+        bus.sendEvent(events[1]);
+        bus.subscribeEvent(TestLoadEvent.class, m2);
+        bus.sendEvents(Arrays.asList(events[2], events[3]));
+
+        assertEquals(events[2], bus.awaitMessage(m2));
+        assertEquals(events[3], bus.awaitMessage(m2));
+        assertEquals(events[0], bus.awaitMessage(m1));
+        assertEquals(events[1], bus.awaitMessage(m1));
+        bus.unregister(m1);
+        bus.unregister(m2);
+    }
+
+    /**
+     * //@PRE: Two buses of their own, each with a service subscribed to TestEvent and TestBroadcast.
+     * //@POST: Messages sent on one bus reach only the service registered on it.
+     */
+    @Test
+    void testSeparateBuses() throws InterruptedException {
+        MessageBusImpl busA = new MessageBusImpl();
+        MessageBusImpl busB = new MessageBusImpl();
+        MockMicroService serviceA = new MockMicroService("SeparateA", busA);
+        MockMicroService serviceB = new MockMicroService("SeparateB", busB);
+        busA.register(serviceA);
+        busA.subscribeEvent(TestEvent.class, serviceA);
+        busA.subscribeBroadcast(TestBroadcast.class, serviceA);
+        busB.register(serviceB);
+        busB.subscribeBroadcast(TestBroadcast.class, serviceB);
+
+        assertTrue(!busB.isRegistered(serviceA) && !messageBus.isRegistered(serviceA),
+            "A service should be registered only on its own bus.");
+        assertNull(busB.sendEvent(new TestEvent()), "Subscribers of another bus should not count.");
+        TestEvent event = new TestEvent();
+        assertNotNull(busA.sendEvent(event));
+        assertEquals(event, busA.awaitMessage(serviceA));
+
+        TestBroadcast first = new TestBroadcast();
+        TestBroadcast second = new TestBroadcast();
+        busA.sendBroadcast(first);
+        busB.sendBroadcast(second);
+        assertEquals(first, busA.awaitMessage(serviceA));
+        assertEquals(second, busB.awaitMessage(serviceB), "A broadcast should stay on its bus.");
+
+        busA.unregister(serviceA);
+        busB.unregister(serviceB);
+    }
+
+    /**
+     * //@PRE: A bus tracking messages in flight; a relay service turns a TestBroadcast
+     *        into an event handled slowly by a worker.
+     * //@POST: awaitQuiescence returns only after the worker handled the event, and
+     *         nothing is in flight once both services unregistered.
+     */
+    @Test
+    void testAwaitQuiescence() throws InterruptedException {
+        MessageBusImpl bus = new MessageBusImpl();
+        bus.setInFlightTracking(true);
+        RelayService relay = new RelayService("Relay", bus, false);
+        RelayService worker = new RelayService("Worker", bus, true);
+        Thread relayThread = new Thread(relay);
+        Thread workerThread = new Thread(worker);
+        relayThread.start();
+        workerThread.start();
+        relay.initialized.await();
+        worker.initialized.await();
+
+        bus.sendBroadcast(new TestBroadcast());
+        bus.awaitQuiescence();
+        synchronized (worker.handled) {
+            assertEquals(Arrays.asList("event"), worker.handled, "The event sent by the relay should be handled.");
+        }
+        assertEquals(0, bus.getInFlight());
+
+        bus.sendBroadcast(new TestFilterBroadcast(0));
+        relayThread.join(5000);
+        workerThread.join(5000);
+        bus.sendBroadcast(new TestBroadcast());
+        assertEquals(0, bus.getInFlight(), "Nothing should count for unregistered services.");
+        bus.awaitQuiescence();
+    }
+
+    /**
+     * //@PRE: A bus tracking messages in flight; a service holds pending work until
+     *        a TestBroadcast, which a relay also turns into an event handled slowly
+     *        by a worker.
+     * //@POST: The quiescence listener does not run while work is pending, runs once
+     *         after the worker handled the event, and not again for later messages.
+     */
+    @Test
+    void testQuiescenceListener() throws InterruptedException {
+        MessageBusImpl bus = new MessageBusImpl();
+        bus.setInFlightTracking(true);
+        HoldingService holding = new HoldingService("Holding", bus);
+        RelayService relay = new RelayService("Relay", bus, false);
+        RelayService worker = new RelayService("Worker", bus, true);
+        List<Thread> threads = new ArrayList<>();
+        for (MicroService m : Arrays.asList(holding, relay, worker)) {
+            threads.add(new Thread(m));
+        }
+        threads.forEach(Thread::start);
+        holding.initialized.await();
+        relay.initialized.await();
+        worker.initialized.await();
+
+        List<Integer> handledWhenQuiescent = new ArrayList<>();
+        CountDownLatch quiescent = new CountDownLatch(1);
+        bus.setQuiescenceListener(() -> {
+            synchronized (worker.handled) {
+                handledWhenQuiescent.add(worker.handled.size());
+            }
+            quiescent.countDown();
+        });
+        assertEquals(1, quiescent.getCount(), "Pending work should keep the bus from being quiescent.");
+
+        bus.sendBroadcast(new TestBroadcast());
+        assertTrue(quiescent.await(5, TimeUnit.SECONDS), "The listener should run once all work is done.");
+        bus.sendBroadcast(new TestBroadcast());
+        bus.awaitQuiescence();
+        assertEquals(Arrays.asList(1), handledWhenQuiescent,
+            "The listener should run once, after the event was handled.");
+
+        bus.sendBroadcast(new TestFilterBroadcast(0));
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertThrows(IllegalStateException.class, () -> new MessageBusImpl().setQuiescenceListener(() -> { }),
+            "Quiescence should need tracking.");
+    }
+
+    /**
+     * //@PRE: A relay service subscribed to TestBroadcast; a broadcast due 5 ms ago
+     *        and an unscheduled one are sent to it.
+     * //@POST: Only the scheduled broadcast is recorded, with a lag of at least 5 ms,
+     *         and percentiles are within 1/16 of the recorded values.
+     */
+    @Test
+    void testDeliveryLag() throws InterruptedException {
+        MessageBusImpl bus = new MessageBusImpl();
+        bus.setInFlightTracking(true);
+        RelayService relay = new RelayService("Relay", bus, false);
+        RelayService worker = new RelayService("Worker", bus, true);
+        Thread relayThread = new Thread(relay);
+        Thread workerThread = new Thread(worker);
+        relayThread.start();
+        workerThread.start();
+        relay.initialized.await();
+        worker.initialized.await();
+
+        bus.sendBroadcast(new TestScheduledBroadcast(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5)));
+        bus.sendBroadcast(new TestScheduledBroadcast(ScheduledMessage.UNSCHEDULED));
+        bus.awaitQuiescence();
+        LagHistogram lags = bus.getDeliveryLags().get("Relay");
+        assertNotNull(lags, "The lag of the relay should be recorded.");
+        assertEquals(1, lags.getCount(), "Only the scheduled broadcast should be recorded.");
+        assertTrue(lags.getMax() >= TimeUnit.MILLISECONDS.toNanos(5), "The lag should count from the due time.");
+        assertNull(bus.getDeliveryLags().get("Worker"), "The worker received no scheduled message.");
+
+        bus.sendBroadcast(new TestFilterBroadcast(0));
+        relayThread.join(5000);
+        workerThread.join(5000);
+
+        LagHistogram histogram = new LagHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_000, histogram.getPercentile(50), 500_000 / 16);
+        assertEquals(990_000, histogram.getPercentile(99), 990_000 / 16);
+        assertEquals(1_000_000, histogram.getPercentile(100));
+    }
+
+    /**
+     * //@PRE: A KEY_AFFINITY router spreads events with 100 keys among three subscribers.
+     * //@POST: Every key is routed to the same subscriber each time; once the third
+     *         subscriber is gone, only its keys move.
+     */
+    @Test
+    void testKeyAffinityRouting() {
+        Router router = RoutingStrategy.KEY_AFFINITY.create();
+        MicroService[] three = {new MockMicroService("M1"), new MockMicroService("M2"), new MockMicroService("M3")};
+        MicroService[] two = Arrays.copyOf(three, 2);
+        int[] load = new int[three.length];
+        for (int k = 0; k < 100; k++) {
+            TestKeyedEvent event = new TestKeyedEvent("object" + k);
+            int owner = router.route(event, three, m -> 0);
+            assertEquals(owner, router.route(new TestKeyedEvent("object" + k), three, m -> 0),
+                "A key should keep its subscriber.");
+            load[owner]++;
+            int after = router.route(event, two, m -> 0);
+            if (owner < 2) {
+                assertEquals(owner, after, "Only the keys of the removed subscriber should move.");
+            }
+        }
+        for (int count : load) {
+            assertTrue(count > 0, "Every subscriber should own some keys.");
+        }
+    }
 }